@@ -0,0 +1,85 @@
+package Model;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+class VectorColumnKernel implements ColumnKernel.Vectorized {
+    // ColumnKernel on jdk.incubator.vector, loaded by ColumnKernel when the module is enabled.
+    // each lane computes the scalar expression in the same order (divide, then multiply by 100),
+    // the lanes past the last full vector run the scalar loop
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    public void toPercentage(float[] scores, CellInputType inputType, float totalScore, float[] out, int from, int end){
+        if (end <= from)
+            return;
+        int i = from;
+        int bound = from + SPECIES.loopBound(end - from);
+        switch (inputType){
+            case Raw:
+                for (; i<bound; i+=SPECIES.length())
+                    FloatVector.fromArray(SPECIES, scores, i).div(totalScore).mul(100f).intoArray(out, i);
+                for (; i<end; i++)
+                    out[i] = scores[i] / totalScore * 100f;
+                break;
+            case Deduction:
+                FloatVector total = FloatVector.broadcast(SPECIES, totalScore);
+                for (; i<bound; i+=SPECIES.length())
+                    total.sub(FloatVector.fromArray(SPECIES, scores, i)).div(totalScore).mul(100f).intoArray(out, i);
+                for (; i<end; i++)
+                    out[i] = (totalScore - scores[i]) / totalScore * 100f;
+                break;
+            case Percentage:
+                System.arraycopy(scores, from, out, from, end - from);
+                break;
+            default:
+                assert(false);
+        }
+    }
+
+    public void addPercentage(float[] scores, CellInputType inputType, float totalScore, float[] sum, int from, int end){
+        if (end <= from)
+            return;
+        int i = from;
+        int bound = from + SPECIES.loopBound(end - from);
+        switch (inputType){
+            case Raw:
+                for (; i<bound; i+=SPECIES.length()){
+                    FloatVector percentage = FloatVector.fromArray(SPECIES, scores, i).div(totalScore).mul(100f);
+                    FloatVector.fromArray(SPECIES, sum, i).add(percentage).intoArray(sum, i);
+                }
+                for (; i<end; i++)
+                    sum[i] += scores[i] / totalScore * 100f;
+                break;
+            case Deduction:
+                FloatVector total = FloatVector.broadcast(SPECIES, totalScore);
+                for (; i<bound; i+=SPECIES.length()){
+                    FloatVector percentage = total.sub(FloatVector.fromArray(SPECIES, scores, i)).div(totalScore).mul(100f);
+                    FloatVector.fromArray(SPECIES, sum, i).add(percentage).intoArray(sum, i);
+                }
+                for (; i<end; i++)
+                    sum[i] += (totalScore - scores[i]) / totalScore * 100f;
+                break;
+            case Percentage:
+                for (; i<bound; i+=SPECIES.length())
+                    FloatVector.fromArray(SPECIES, sum, i).add(FloatVector.fromArray(SPECIES, scores, i)).intoArray(sum, i);
+                for (; i<end; i++)
+                    sum[i] += scores[i];
+                break;
+            default:
+                assert(false);
+        }
+    }
+
+    public void addWeighted(float[] aggregate, float weight, float[] sum, int from, int end){
+        if (end <= from)
+            return;
+        int i = from;
+        int bound = from + SPECIES.loopBound(end - from);
+        for (; i<bound; i+=SPECIES.length()){
+            FloatVector weighted = FloatVector.fromArray(SPECIES, aggregate, i).mul(weight).div(100f);
+            FloatVector.fromArray(SPECIES, sum, i).add(weighted).intoArray(sum, i);
+        }
+        for (; i<end; i++)
+            sum[i] += aggregate[i]*weight/100;
+    }
+}
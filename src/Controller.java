@@ -1,8 +1,17 @@
+import Model.CourseAutosave;
+import Model.CourseJournal;
+import Model.CourseReader;
+import Model.GradeCsvImporter;
+import Model.GradeImportReport;
 import Model.LeafNode;
+import Model.ParallelScoreEvaluator;
 import Model.ParentNode;
+import Model.RosterDelta;
 import Model.Student;
 import Model.StudentPool;
 
+import javax.swing.SwingUtilities;
+
 import java.io.FileInputStream;
 import java.io.ObjectInputStream;
 import java.util.Arrays;
@@ -10,6 +19,9 @@ import java.util.Arrays;
 public class Controller {
 	private static ParentNode root;
 	private ParentNode currentState;
+	private boolean parallelEvaluation = false;
+	private ParallelScoreEvaluator parallelEvaluator = new ParallelScoreEvaluator();
+	private CourseAutosave autosave;
 
 	public Controller() {
 		//root = setRoot();
@@ -56,6 +68,7 @@ public class Controller {
 		if (studentPool==null){
 			return root.genSummaryTableArray(null);
 		}
+		computeFinalScore(); // so the summary reads aggregates already computed in the selected mode
 		return root.genSummaryTableArray(root.getStudentPool().getPrimaryKeyAndSortBy("last name"));
 	}
 
@@ -86,7 +99,19 @@ public class Controller {
 	}
 
 	public void computeFinalScore() {
-		root.computeFinalScore();
+		computeFinalScore(parallelEvaluation);
+	}
+
+	public void computeFinalScore(boolean parallel) {
+		// both paths give identical scores, parallel only pays off for large courses
+		if (parallel)
+			parallelEvaluator.recomputeDirtyScores(root);
+		else
+			root.recomputeDirtyScores();
+	}
+
+	public void setParallelEvaluation(boolean parallel) {
+		parallelEvaluation = parallel;
 	}
 
 	public ParentNode getCurrentState() {
@@ -112,16 +137,51 @@ public class Controller {
 		currentState.addChild(newParent);
 	}
 
+	public GradeImportReport importGradesFromCsv(String filepath){
+		// scores for every assignment column in the csv, written in batch, rejected cells are listed in the report
+		try {
+			return new GradeCsvImporter(root).importFrom(filepath);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	public RosterDelta mergeRoster(String filepath){
+		// add/drop from a new roster csv, scores of students who stay are untouched
+		RosterDelta delta = root.getStudentPool().mergeFromCsv(filepath);
+		if (delta != null)
+			root.applyRosterDelta(delta);
+		if (delta != null && !delta.isEmpty() && root.getJournal() != null) {
+			// roster changes aren't journaled, the course file takes them
+			try {
+				root.getJournal().checkpoint();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		return delta;
+	}
+
 	public ParentNode getRoot(){
 		return root;
 	}
 
 	public void openCourse(String pathToCourse){
 		ParentNode newRoot = null;
+		// the old course lets go of its files before any are read, it may be the same course reopened.
+		// closing the journal waits for a snapshot write or compaction in progress, later autosave writes
+		// of the old course are dropped (the journal has their edits)
+		stopAutosave();
+		if (root != null && root.getJournal() != null)
+			root.getJournal().close();
 		try {
-			FileInputStream fis = new FileInputStream(pathToCourse);
-			ObjectInputStream objis = new ObjectInputStream(fis);
-			newRoot = (ParentNode) objis.readObject();
+			// course file with its journal replayed, every edit from now on is journaled.
+			// a .ser not converted yet opens without journal
+			if (CourseReader.isCourseFile(pathToCourse))
+				newRoot = CourseJournal.open(pathToCourse);
+			else
+				newRoot = CourseReader.open(pathToCourse);
 			System.out.println("read successfully");
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -129,6 +189,28 @@ public class Controller {
 		//newRoot.traverse(0);
 		root = newRoot;
 		currentState = newRoot;
+		if (newRoot != null && newRoot.getJournal() != null)
+			startAutosave(newRoot, pathToCourse);
+	}
+
+	public void startAutosave(ParentNode course, String pathToCourse){
+		// the course is saved to pathToCourse in the background shortly after each burst of edits.
+		// snapshots are taken on the swing thread, which is the one editing the tree
+		stopAutosave();
+		autosave = new CourseAutosave(course, pathToCourse, SwingUtilities::invokeLater);
+	}
+
+	public void stopAutosave(){
+		// what is unsaved is still written, on the autosave thread
+		if (autosave == null)
+			return;
+		autosave.close();
+		autosave = null;
+	}
+
+	public CourseAutosave getAutosave(){
+		// save count, latency and pause metrics of the open course, null if it isn't autosaved
+		return autosave;
 	}
 
 	public static void main(String[] args) {
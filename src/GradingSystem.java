@@ -4,6 +4,8 @@ public class GradingSystem {
 	public static final String currCourseFolder = "./InProgress_Courses/";
 
 	public static void main(String[] args) {
+		// courses saved with java serialization still open as they are,
+		// Model.LegacyCourseConverter converts them to course files when run on its own
 		controller = new Controller();
 		//ClassHome classHome = new ClassHome();
 		LoginPage loginPage = new LoginPage(controller.getRoot());
@@ -2,8 +2,6 @@ import java.awt.BorderLayout;
 import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.FileInputStream;
-import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
@@ -13,6 +11,9 @@ import javax.swing.JPanel;
 import javax.swing.JScrollBar;
 import javax.swing.border.EmptyBorder;
 
+import Model.CourseInfo;
+import Model.CourseReader;
+import Model.CourseWriter;
 import Model.ParentNode;
 
 import javax.swing.JLabel;
@@ -71,19 +72,25 @@ public class ImportClass extends JFrame {
 		
 		this.path=path;
 		this.root=root;
-        try {
-            FileInputStream fis = new FileInputStream(path);
-            ObjectInputStream objis = new ObjectInputStream(fis);
-            root = (ParentNode) objis.readObject();
-            System.out.println("read successfully");
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-		ArrayList<ParentNode> children=root.getAllChildren();
-		for (int i=0; i<children.size();i++)
-		{
-			critlist.add(children.get(i).getCriteria());
-			weightlist.add(children.get(i).getWeight());
+		// the template is the criteria skeleton in the course header, the course itself isn't read.
+		// a file without header (not saved since) is read whole
+		CourseInfo info = CourseReader.readInfo(path);
+		if (info != null) {
+			critlist.addAll(info.getCriteria());
+			weightlist.addAll(info.getWeights());
+		} else {
+	        try {
+	            root = CourseReader.open(path);
+	            System.out.println("read successfully");
+	        } catch (Exception e) {
+	            e.printStackTrace();
+	        }
+			ArrayList<ParentNode> children=root.getAllChildren();
+			for (int i=0; i<children.size();i++)
+			{
+				critlist.add(children.get(i).getCriteria());
+				weightlist.add(children.get(i).getWeight());
+			}
 		}
 
 		
@@ -170,7 +177,7 @@ public class ImportClass extends JFrame {
 			}
 		});
 		
-		numcols=children.size();
+		numcols=critlist.size();
 		if (numcols>0)
 		{
 			crit1.setText(critlist.get(0));
@@ -281,6 +288,7 @@ public class ImportClass extends JFrame {
             if (finishflag!=0)
             {
 				root.updateCurrNode(Semester_Name, criteria_list, weights_list);
+				GradingSystem.controller.startAutosave(root, GradingSystem.currCourseFolder + Semester_Name + CourseWriter.EXTENSION);
 				root.traverse(0);
 				ArrayList<String> errors = root.treeValidation(null,  true);
                 if (errors.size()>0)
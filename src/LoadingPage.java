@@ -19,6 +19,7 @@ import javax.swing.JList;
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
+import Model.CourseInfo;
 import Model.ParentNode;
 import java.io.File;
 import java.nio.file.FileSystems;
@@ -67,7 +68,7 @@ public void initial()
 
 
 		list_1 = new JList();
-		list_1.setListData(allFileInFolder(GradingSystem.pastCourseFolder));
+		list_1.setListData(allCoursesInFolder(GradingSystem.pastCourseFolder));
 		list_1.setBounds(81, 170, 372, 80);
 		list_1.addListSelectionListener(new ListSelectionListener() {
 			public void valueChanged(ListSelectionEvent e) {
@@ -84,7 +85,7 @@ public void initial()
 				JList list = (JList)evt.getSource();
 				if (evt.getClickCount() == 2) {
 					// Double-click detected
-					String fileToRead = GradingSystem.pastCourseFolder + list_1.getSelectedValue();
+					String fileToRead = GradingSystem.pastCourseFolder + ((CourseInfo)list_1.getSelectedValue()).getFileName();
 					//String absolutePath = FileSystems.getDefault().getPath(fileToRead).normalize().toAbsolutePath().toString();
 					System.out.println("opening Past course: " + fileToRead);
 					parent.dispose();
@@ -111,7 +112,7 @@ public void initial()
 
 		list = new JList();
 		list.setBounds(81, 36, 372, 89);
-		list.setListData(allFileInFolder(GradingSystem.currCourseFolder));
+		list.setListData(allCoursesInFolder(GradingSystem.currCourseFolder));
 		list.addListSelectionListener(new ListSelectionListener() {
 			  public void valueChanged(ListSelectionEvent e) {
 					if (!isChanging)
@@ -127,7 +128,7 @@ public void initial()
 				JList list = (JList)evt.getSource();
 				if (evt.getClickCount() == 2) {
 					// Double-click detected
-					String fileToRead = GradingSystem.currCourseFolder + list.getSelectedValue();
+					String fileToRead = GradingSystem.currCourseFolder + ((CourseInfo)list.getSelectedValue()).getFileName();
 					System.out.println("opening Curr course: " + fileToRead);
 					parent.dispose();
 					GradingSystem.controller.openCourse(fileToRead);
@@ -159,23 +160,16 @@ public void initial()
 		list.clearSelection();
 	}
 
-	public String[] allFileInFolder(String folderPath){
-		final File folder = new File(folderPath);
-		ArrayList<String> files = new ArrayList<>();
-		for (final File fileEntry : folder.listFiles()) {
-			if (fileEntry.isDirectory()) {
-				// do nothing
-			} else {
-				files.add(fileEntry.getName());
-			}
-		}
-		String[] ret = new String[files.size()];
-		for (int i=0; i<files.size(); i++)
-			ret[i] = files.get(i);
+	public CourseInfo[] allCoursesInFolder(String folderPath){
+		// only the header of each course is read, the list shows name, semester and roster size
+		ArrayList<CourseInfo> courses = CourseInfo.readFolder(folderPath);
+		CourseInfo[] ret = new CourseInfo[courses.size()];
+		for (int i=0; i<courses.size(); i++)
+			ret[i] = courses.get(i);
 		return ret;
 	}
 
 	public static void main(String[] args){
-		//LoadingPage.allFileInFolder(GradingSystem.currCourseFolder);
+		//LoadingPage.allCoursesInFolder(GradingSystem.currCourseFolder);
 	}
 }
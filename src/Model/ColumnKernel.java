@@ -0,0 +1,100 @@
+package Model;
+
+public class ColumnKernel {
+    // whole-column loops used when every student of a node is re-aggregated.
+    // the CellInputType switch is taken once per column, so each loop body is a plain
+    // float expression over contiguous arrays. expressions match LeafNode.getPercentageAt /
+    // ParentNode.getWeightedScoreAt exactly, so results are identical to the per-student path.
+    // the loops run on explicit SIMD (jdk.incubator.vector) when VectorColumnKernel is on the class path
+    // (built from src-vector, see README) and the JVM runs with --add-modules jdk.incubator.vector.
+    // otherwise they are the scalar loops below and whether they vectorize is up to the JIT.
+    // lane-wise float ops round like the scalar ones, both paths give identical floats
+
+    interface Vectorized {
+        // the [from, end) part of each kernel, end already clipped to the column
+        void toPercentage(float[] scores, CellInputType inputType, float totalScore, float[] out, int from, int end);
+        void addPercentage(float[] scores, CellInputType inputType, float totalScore, float[] sum, int from, int end);
+        void addWeighted(float[] aggregate, float weight, float[] sum, int from, int end);
+    }
+
+    private static final Vectorized VECTORIZED = loadVectorized();
+
+    private static Vectorized loadVectorized(){
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            return null;
+        try {
+            return (Vectorized)Class.forName("Model.VectorColumnKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // module enabled but the vector kernel wasn't built
+        }
+    }
+
+    public static boolean isVectorized(){return VECTORIZED != null;}
+
+    public static void toPercentage(float[] scores, int columnSize, CellInputType inputType, float totalScore,
+                                    float[] out, int from, int to){
+        int end = Math.min(to, columnSize);
+        if (VECTORIZED != null){
+            VECTORIZED.toPercentage(scores, inputType, totalScore, out, from, end);
+        } else {
+            switch (inputType){
+                case Raw:
+                    for (int i=from; i<end; i++)
+                        out[i] = scores[i] / totalScore * 100f;
+                    break;
+                case Deduction:
+                    for (int i=from; i<end; i++)
+                        out[i] = (totalScore - scores[i]) / totalScore * 100f;
+                    break;
+                case Percentage:
+                    for (int i=from; i<end; i++)
+                        out[i] = scores[i];
+                    break;
+                default:
+                    assert(false);
+            }
+        }
+        // students without a slot in the column yet have an unset (NaN) score
+        for (int i=Math.max(from, end); i<to; i++)
+            out[i] = Float.NaN;
+    }
+
+    public static void addPercentage(float[] scores, int columnSize, CellInputType inputType, float totalScore,
+                                     float[] sum, int from, int to){
+        int end = Math.min(to, columnSize);
+        if (VECTORIZED != null){
+            VECTORIZED.addPercentage(scores, inputType, totalScore, sum, from, end);
+        } else {
+            switch (inputType){
+                case Raw:
+                    for (int i=from; i<end; i++)
+                        sum[i] += scores[i] / totalScore * 100f;
+                    break;
+                case Deduction:
+                    for (int i=from; i<end; i++)
+                        sum[i] += (totalScore - scores[i]) / totalScore * 100f;
+                    break;
+                case Percentage:
+                    for (int i=from; i<end; i++)
+                        sum[i] += scores[i];
+                    break;
+                default:
+                    assert(false);
+            }
+        }
+        for (int i=Math.max(from, end); i<to; i++)
+            sum[i] += Float.NaN;
+    }
+
+    public static void addWeighted(float[] aggregate, int aggregateSize, float weight,
+                                   float[] sum, int from, int to){
+        // a child aggregate shorter than the range contributes 0, same as getWeightedScoreAt
+        int end = Math.min(to, aggregateSize);
+        if (VECTORIZED != null){
+            VECTORIZED.addWeighted(aggregate, weight, sum, from, end);
+            return;
+        }
+        for (int i=from; i<end; i++)
+            sum[i] += aggregate[i]*weight/100;
+    }
+}
@@ -0,0 +1,267 @@
+package Model;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class CourseAutosave {
+    // saves an open course in the background a moment after it stops changing. an edit only marks the
+    // course changed (TreeNode.courseChanged, constant time on the editing thread). once no edit came for
+    // the quiet period, or the max delay after the first unsaved edit at the latest, the save thread asks
+    // the editing thread for a CourseSnapshot and writes it, so a burst of edits is one save and the
+    // editing thread only pauses for the snapshot. the file is replaced atomically (CourseWriter), a
+    // journaled course has its journal trimmed up to the snapshot
+    public static final long DEFAULT_QUIET_MILLIS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+
+    private ParentNode root;
+    private String filepath;
+    private Executor modelThread;   // runs tasks on the thread that edits the tree, e.g. SwingUtilities::invokeLater
+    private ScheduledExecutorService saver;
+    private long quietNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_QUIET_MILLIS);
+    private long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_DELAY_MILLIS);
+
+    // guarded by this
+    private boolean dirty;          // edited since the last snapshot
+    private boolean scheduled;      // a tick is pending or a save is running, edits don't schedule another
+    private boolean closed;
+    private long firstUnsaved;      // nanoTime of the first edit after the last snapshot
+    private long lastChange;        // nanoTime of the last edit
+    private int pendingEdits;       // edits since the last snapshot
+    private long generation;        // snapshots taken
+
+    private final Object writeLock = new Object(); // one file write at a time, newest snapshot wins
+    private long writtenGeneration; // guarded by writeLock
+
+    // metrics, guarded by this
+    private int saveCount;
+    private int failureCount;
+    private long savedEdits;
+    private long lastSaveNanos, totalSaveNanos;
+    private long maxPauseNanos, totalPauseNanos;
+    private long firstSaveTime, lastSaveTime; // System.currentTimeMillis, 0 if never saved
+
+    public CourseAutosave(ParentNode root, String filepath, Executor modelThread){
+        this.root = root;
+        this.filepath = filepath;
+        this.modelThread = modelThread;
+        saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "course-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        root.setAutosave(this);
+    }
+
+    // setters
+    public synchronized void setQuietMillis(long millis){quietNanos = TimeUnit.MILLISECONDS.toNanos(millis);}
+
+    public synchronized void setMaxDelayMillis(long millis){maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(millis);}
+
+    // getters
+    public String getFilepath(){return filepath;}
+
+    public synchronized int getSaveCount(){return saveCount;}
+
+    public synchronized int getFailureCount(){return failureCount;}
+
+    public synchronized long getSavedEdits(){return savedEdits;}
+
+    public synchronized double getEditsPerSave(){
+        // how well bursts coalesce
+        return saveCount == 0 ? 0 : (double)savedEdits / saveCount;
+    }
+
+    public synchronized double getLastSaveMillis(){return lastSaveNanos / 1e6;}
+
+    public synchronized double getAverageSaveMillis(){
+        return saveCount == 0 ? 0 : totalSaveNanos / 1e6 / saveCount;
+    }
+
+    public synchronized double getMaxPauseMillis(){
+        // longest the editing thread stood still for a snapshot
+        return maxPauseNanos / 1e6;
+    }
+
+    public synchronized double getAveragePauseMillis(){
+        return saveCount == 0 ? 0 : totalPauseNanos / 1e6 / saveCount;
+    }
+
+    public synchronized double getAverageSaveIntervalMillis(){
+        return saveCount < 2 ? 0 : (double)(lastSaveTime - firstSaveTime) / (saveCount - 1);
+    }
+
+    public synchronized long getLastSaveTime(){return lastSaveTime;}
+
+    public synchronized boolean hasUnsavedChanges(){return dirty;}
+
+    // called by ParentNode.courseChanged on the editing thread
+    synchronized void courseChanged(){
+        long now = System.nanoTime();
+        if (!dirty){
+            dirty = true;
+            firstUnsaved = now;
+        }
+        lastChange = now;
+        pendingEdits++;
+        if (!scheduled && !closed){
+            scheduled = true;
+            saver.schedule(this::tick, quietNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void tick(){
+        // save thread: wait until the course is quiet (or the max delay is up), then save
+        synchronized (this){
+            if (closed || !dirty){
+                scheduled = false;
+                return;
+            }
+            long wait = Math.min(lastChange + quietNanos, firstUnsaved + maxDelayNanos) - System.nanoTime();
+            if (wait > 0){
+                saver.schedule(this::tick, wait, TimeUnit.NANOSECONDS);
+                return;
+            }
+        }
+
+        FutureTask<Snapshot> take = new FutureTask<>(this::takeSnapshot);
+        modelThread.execute(take);
+        boolean saved = false;
+        try {
+            saved = write(take.get());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        synchronized (this){
+            scheduled = false;
+            // edits made while saving get their own save. after a failure the next edit retries
+            if (saved && dirty && !closed){
+                scheduled = true;
+                saver.execute(this::tick);
+            }
+        }
+    }
+
+    public void flush(){
+        // saves now if there are unsaved changes. call on the editing thread, blocks until written
+        try {
+            write(takeSnapshot());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void close(){
+        // call on the editing thread: snapshots what is unsaved and stops. the snapshot is written on the
+        // save thread after any save already running, so closing a large course doesn't block the caller
+        Snapshot last = null;
+        try {
+            last = takeSnapshot();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        synchronized (this){
+            closed = true;
+        }
+        root.setAutosave(null);
+        Snapshot snapshot = last;
+        saver.execute(() -> write(snapshot));
+        saver.shutdown();
+    }
+
+    public boolean awaitClose(long millis){
+        // for shutdown: returns once the last save after close is on disk, false on timeout
+        try {
+            return saver.awaitTermination(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static class Snapshot {
+        CourseSnapshot course;
+        long generation;
+        int edits;
+        long pauseNanos;
+    }
+
+    private Snapshot takeSnapshot() throws IOException {
+        // editing thread, so no edit lands between clearing dirty and copying the tree
+        Snapshot snapshot = new Snapshot();
+        synchronized (this){
+            if (!dirty || closed)
+                return null;
+            dirty = false;
+            snapshot.edits = pendingEdits;
+            pendingEdits = 0;
+            snapshot.generation = ++generation;
+        }
+        long start = System.nanoTime();
+        try {
+            snapshot.course = CourseSnapshot.take(root);
+        } catch (IOException | RuntimeException e) {
+            unsaved(snapshot.edits);
+            throw e;
+        }
+        snapshot.pauseNanos = System.nanoTime() - start;
+        return snapshot;
+    }
+
+    private boolean write(Snapshot snapshot){
+        // returns whether the snapshot is on disk, or a newer one already was
+        if (snapshot == null)
+            return true;
+        long start = System.nanoTime();
+        try {
+            synchronized (writeLock){
+                if (snapshot.generation < writtenGeneration)
+                    return true; // a flush wrote a newer one meanwhile
+                snapshot.course.writeTo(filepath);
+                writtenGeneration = snapshot.generation;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            synchronized (this){
+                failureCount++;
+            }
+            unsaved(snapshot.edits);
+            return false;
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (this){
+            saveCount++;
+            savedEdits += snapshot.edits;
+            lastSaveNanos = elapsed;
+            totalSaveNanos += elapsed;
+            totalPauseNanos += snapshot.pauseNanos;
+            maxPauseNanos = Math.max(maxPauseNanos, snapshot.pauseNanos);
+            lastSaveTime = System.currentTimeMillis();
+            if (firstSaveTime == 0)
+                firstSaveTime = lastSaveTime;
+        }
+        return true;
+    }
+
+    private synchronized void unsaved(int edits){
+        // the edits of a snapshot that didn't make it to disk are pending again
+        if (!dirty){
+            dirty = true;
+            firstUnsaved = System.nanoTime();
+        }
+        pendingEdits += edits;
+    }
+
+    @Override
+    public synchronized String toString(){
+        return String.format("autosave %s: %d saves of %d edits (%.1f per save), write avg %.2fms last %.2fms, "
+                             + "pause avg %.3fms max %.3fms, every %.0fms, %d failures",
+                             filepath, saveCount, savedEdits, getEditsPerSave(), getAverageSaveMillis(),
+                             getLastSaveMillis(), getAveragePauseMillis(), getMaxPauseMillis(),
+                             getAverageSaveIntervalMillis(), failureCount);
+    }
+}
@@ -0,0 +1,145 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+
+public class CourseInfo {
+    // what the course pickers show and a new course takes as template, without reading the course.
+    // CourseWriter puts it right after the file header, CourseReader.readInfo reads only that.
+    // payload: name, semester, #students, last modified, then criteria + weight of every top-level category.
+    // it is length-prefixed, so CourseReader.read skips it in one step
+    private String fileName;        // set when read from a file
+    private String name;
+    private String semester;        // "" if the course title has none
+    private int studentCount;       // enrolled students, -1 if unknown
+    private long lastModified;      // System.currentTimeMillis of the write
+    private long contentHash;       // crc32c of everything after the header, see CourseWriter
+    private ArrayList<String> criteria = new ArrayList<>();
+    private ArrayList<Float> weights = new ArrayList<>();
+    private boolean hasHeader;      // false for a file that isn't a course file (see unknown)
+
+    private CourseInfo(){}
+
+    static CourseInfo of(ParentNode root){
+        // the course title is "<semester>-<name>" (NewClass), older courses used '_' in its place
+        CourseInfo info = new CourseInfo();
+        String title = root.getCriteria() == null ? "" : root.getCriteria();
+        int split = title.indexOf('-');
+        if (split < 0)
+            split = title.indexOf('_');
+        info.semester = split < 0 ? "" : title.substring(0, split);
+        info.name = split < 0 ? title : title.substring(split + 1);
+        StudentPool pool = root.getStudentPool();
+        info.studentCount = pool == null ? 0 : pool.getEnrolledCount();
+        info.lastModified = System.currentTimeMillis();
+        for (TreeNode child : root.getChildren()){
+            if (child.isLeaf())
+                continue;
+            info.criteria.add(((ParentNode)child).getCriteria());
+            info.weights.add(((ParentNode)child).getWeight());
+        }
+        info.hasHeader = true;
+        return info;
+    }
+
+    static CourseInfo unknown(String filepath){
+        // a .ser, or a file CourseReader can't read: only the file is known
+        CourseInfo info = new CourseInfo();
+        info.fileName = new File(filepath).getName();
+        info.name = info.fileName;
+        info.semester = "";
+        info.studentCount = -1;
+        info.lastModified = new File(filepath).lastModified();
+        return info;
+    }
+
+    public static ArrayList<CourseInfo> readFolder(String folderPath){
+        // every course of a folder, in listing order. skips folders, journals and saves in progress
+        ArrayList<CourseInfo> ret = new ArrayList<>();
+        File[] files = new File(folderPath).listFiles();
+        if (files == null)
+            return ret;
+        for (File file : files){
+            String fileName = file.getName();
+            if (file.isDirectory() || fileName.endsWith(CourseJournal.EXTENSION) || fileName.endsWith(".tmp"))
+                continue;
+            CourseInfo info = CourseReader.readInfo(file.getPath());
+            ret.add(info != null ? info : unknown(file.getPath()));
+        }
+        return ret;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream payloadOut = new DataOutputStream(payload);
+        CourseWriter.writeString(payloadOut, name);
+        CourseWriter.writeString(payloadOut, semester);
+        payloadOut.writeInt(studentCount);
+        payloadOut.writeLong(lastModified);
+        CourseWriter.writeVarInt(payloadOut, criteria.size());
+        for (int i=0; i<criteria.size(); i++){
+            CourseWriter.writeString(payloadOut, criteria.get(i));
+            payloadOut.writeFloat(weights.get(i));
+        }
+        out.writeInt(payload.size());
+        payload.writeTo(out);
+    }
+
+    static CourseInfo read(DataInputStream in) throws IOException {
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        DataInputStream payloadIn = new DataInputStream(new ByteArrayInputStream(payload));
+        CourseInfo info = new CourseInfo();
+        info.name = CourseReader.readString(payloadIn);
+        info.semester = CourseReader.readString(payloadIn);
+        info.studentCount = payloadIn.readInt();
+        info.lastModified = payloadIn.readLong();
+        int numCriteria = CourseReader.readVarInt(payloadIn);
+        for (int i=0; i<numCriteria; i++){
+            info.criteria.add(CourseReader.readString(payloadIn));
+            info.weights.add(payloadIn.readFloat());
+        }
+        info.hasHeader = true;
+        return info;
+    }
+
+    // getters
+    public String getFileName(){return fileName;}
+
+    public String getName(){return name;}
+
+    public String getSemester(){return semester;}
+
+    public int getStudentCount(){return studentCount;}
+
+    public long getLastModified(){return lastModified;}
+
+    public long getContentHash(){return contentHash;}
+
+    public ArrayList<String> getCriteria(){return criteria;}
+
+    public ArrayList<Float> getWeights(){return weights;}
+
+    public boolean hasHeader(){return hasHeader;}
+
+    // setters
+    void setFileName(String fileName){this.fileName = fileName;}
+
+    void setContentHash(long contentHash){this.contentHash = contentHash;}
+
+    @Override
+    public String toString(){
+        // how the course pickers list it
+        if (!hasHeader)
+            return fileName;
+        String modified = new SimpleDateFormat("yyyy-MM-dd").format(new Date(lastModified));
+        return name + (semester.isEmpty() ? "" : " (" + semester + ")") + ", " + studentCount + " students, " + modified;
+    }
+}
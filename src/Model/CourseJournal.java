@@ -0,0 +1,518 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class CourseJournal {
+    // write-ahead journal of one course file (<course>.journal). every edit of the open course appends
+    // one small record and syncs it, so an edit costs the same whatever the course size and survives a crash.
+    // opening replays the records the course file doesn't hold yet. once the journal grows past the
+    // threshold, a background thread folds it into a new course file: it reads the last course file
+    // (not the live tree the UI is editing), replays the journal on it and writes it back.
+    //
+    // every record carries a sequence number and the course file header the last one folded in,
+    // so a crash between writing the course file and trimming the journal never applies a record twice.
+    // file: magic "GSJL", course id, then records: payload length, crc32 of payload, payload
+    // payload: sequence, type, path of the node from the root (child indexes), type specific fields
+    public static final String EXTENSION = ".journal";
+    private static final int MAGIC = 0x47534A4C; // "GSJL"
+    private static final int HEADER_BYTES = 12;
+    public static final long DEFAULT_COMPACT_THRESHOLD = 4 << 20;
+
+    private static final byte SCORE = 1;
+    private static final byte SCORES = 2;
+    private static final byte NOTE = 3;
+    private static final byte TOTAL_SCORE = 4;
+    private static final byte INPUT_TYPE = 5;
+    private static final byte ADD_CHILD = 6;
+    private static final byte REMOVE_CHILD = 7;
+    private static final byte WEIGHT = 8;
+    private static final byte CRITERIA = 9;
+
+    private String coursePath;
+    private Path journalPath;
+    private ParentNode root;
+    private long courseId;
+    private FileChannel channel;
+    private long sequence;          // of the last record appended
+    private long size;              // bytes in the journal file
+    private long trimmed;           // record bytes trims dropped, so a position taken before a trim still holds
+    private long compactThreshold = DEFAULT_COMPACT_THRESHOLD;
+    private boolean syncEachRecord = true;
+    private ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private DataOutputStream recordOut = new DataOutputStream(record);
+
+    private final Object snapshotLock = new Object(); // one course file write at a time
+    private long snapshotSequence;  // sequence the course file on disk holds, guarded by snapshotLock
+    private boolean closed;         // guarded by snapshotLock
+    private ArrayList<LeafNode> mappedColumns = new ArrayList<>(); // columns of root read from the mapped course file, guarded by snapshotLock
+    private ExecutorService compactor;
+    private boolean compacting;
+
+    private CourseJournal(String coursePath){
+        this.coursePath = coursePath;
+        journalPath = Paths.get(coursePath + EXTENSION);
+    }
+
+    public static ParentNode open(String coursePath) throws IOException {
+        // course file + every journaled edit after it, with the journal attached so further edits are recorded
+        CourseJournal journal = new CourseJournal(coursePath);
+        CourseReader.Mark mark = CourseReader.readMark(coursePath);
+        ParentNode root = CourseReader.read(coursePath);
+        collectMappedColumns(root, journal.mappedColumns);
+        journal.courseId = mark.courseId;
+        journal.snapshotSequence = mark.sequence;
+        journal.sequence = mark.sequence;
+
+        long validBytes = journal.replay(root, mark.sequence, Long.MAX_VALUE, Long.MAX_VALUE);
+        if (validBytes < 0){
+            // no journal yet, or one left from another course file of this name
+            journal.rewrite(new byte[0]);
+        } else {
+            journal.channel = FileChannel.open(journal.journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            journal.channel.truncate(validBytes); // a record torn by a crash is dropped
+            journal.channel.position(validBytes);
+            journal.size = validBytes;
+        }
+        journal.root = root;
+        root.setJournal(journal);
+        return root;
+    }
+
+    private static void collectMappedColumns(TreeNode node, ArrayList<LeafNode> columns){
+        if (node.isLeaf()){
+            if (((LeafNode)node).getMappedScores() != null)
+                columns.add((LeafNode)node);
+            return;
+        }
+        for (TreeNode child : ((ParentNode)node).getChildren())
+            collectMappedColumns(child, columns);
+    }
+
+    // getters
+    public String getCoursePath(){return coursePath;}
+
+    public long getCourseId(){return courseId;}
+
+    public synchronized long getSequence(){return sequence;}
+
+    public synchronized long getSize(){return size;}
+
+    synchronized long getPosition(){
+        // end of the last record, counted from the first record ever appended
+        return trimmed + size;
+    }
+
+    // setters
+    public void setCompactThreshold(long bytes){compactThreshold = bytes;}
+
+    public void setSyncEachRecord(boolean sync){
+        // without sync an edit is only as durable as the OS page cache, e.g. for a bulk scripted import
+        syncEachRecord = sync;
+    }
+
+    // ============ records, called by the model setters ============
+    synchronized void scoreChanged(LeafNode leaf, int ordinal, float score){
+        try {
+            begin(SCORE, leaf);
+            CourseWriter.writeVarInt(recordOut, ordinal);
+            recordOut.writeFloat(score);
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void scoresChanged(LeafNode leaf, int[] ordinals, float[] scores, int count){
+        try {
+            begin(SCORES, leaf);
+            CourseWriter.writeVarInt(recordOut, count);
+            for (int i=0; i<count; i++){
+                CourseWriter.writeVarInt(recordOut, ordinals[i]);
+                recordOut.writeFloat(scores[i]);
+            }
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void noteWritten(TreeNode node, int ordinal, String content){
+        // ordinal -1: note of the node itself
+        try {
+            begin(NOTE, node);
+            CourseWriter.writeVarInt(recordOut, ordinal);
+            CourseWriter.writeString(recordOut, content);
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void totalScoreChanged(LeafNode leaf, float totalScore){
+        try {
+            begin(TOTAL_SCORE, leaf);
+            recordOut.writeFloat(totalScore);
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void inputTypeChanged(LeafNode leaf, CellInputType type){
+        try {
+            begin(INPUT_TYPE, leaf);
+            recordOut.writeByte(type.ordinal());
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void childAdded(ParentNode parent, TreeNode child){
+        // the whole subtree goes into the record, it may come with scores already
+        try {
+            begin(ADD_CHILD, parent);
+            CourseWriter.writeSubtree(child, root.getStudentPool(), recordOut);
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void childRemoved(ParentNode parent, int childIdx){
+        try {
+            begin(REMOVE_CHILD, parent);
+            CourseWriter.writeVarInt(recordOut, childIdx);
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void weightChanged(ParentNode node, float weight){
+        try {
+            begin(WEIGHT, node);
+            recordOut.writeFloat(weight);
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    synchronized void criteriaChanged(ParentNode node, String criteria){
+        try {
+            begin(CRITERIA, node);
+            CourseWriter.writeString(recordOut, criteria);
+            commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void begin(byte type, TreeNode node) throws IOException {
+        record.reset();
+        recordOut.writeLong(sequence + 1);
+        recordOut.writeByte(type);
+        ArrayList<Integer> path = new ArrayList<>();
+        for (TreeNode curr = node; curr.getParent() != null; curr = curr.getParent())
+            path.add(curr.getParent().getChildren().indexOf(curr));
+        CourseWriter.writeVarInt(recordOut, path.size());
+        for (int i=path.size()-1; i>=0; i--)
+            CourseWriter.writeVarInt(recordOut, path.get(i));
+    }
+
+    private void commit() throws IOException {
+        byte[] payload = record.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt((int)crc.getValue());
+        buffer.put(payload);
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        if (syncEachRecord)
+            channel.force(false);
+        sequence++;
+        size += 8 + payload.length;
+        if (size > compactThreshold && !compacting){
+            compacting = true;
+            getCompactor().execute(this::compact);
+        }
+    }
+    // ==============================
+
+    public void checkpoint() throws IOException {
+        // the live tree becomes the course file, needed after changes the journal doesn't record
+        // (roster import or merge, whole-tree rebuilds). the caller must not edit the tree meanwhile
+        synchronized (snapshotLock){
+            long upTo, position;
+            synchronized (this){
+                upTo = sequence;
+                position = getPosition();
+            }
+            releaseCourseFile();
+            CourseWriter.write(root, coursePath, courseId, upTo);
+            snapshotSequence = upTo;
+            trim(position);
+        }
+    }
+
+    boolean writeSnapshot(CourseSnapshot snapshot) throws IOException {
+        // course file from a snapshot taken on the editing thread, written from any thread
+        synchronized (snapshotLock){
+            if (closed)
+                return false; // the journal holds the edits, the next open replays them
+            if (snapshot.getSequence() < snapshotSequence)
+                return false; // the course file is already newer
+            releaseCourseFile();
+            snapshot.write(coursePath);
+            snapshotSequence = snapshot.getSequence();
+            trim(snapshot.getJournalPosition());
+            return true;
+        }
+    }
+
+    void compact(){
+        // runs on the compactor thread, the UI keeps appending meanwhile
+        try {
+            synchronized (snapshotLock){
+                long upTo, position;
+                synchronized (this){
+                    upTo = sequence;
+                    position = getPosition();
+                }
+                if (upTo <= snapshotSequence)
+                    return; // a checkpoint got there first
+                // read into memory rather than mapped, the file is replaced right after
+                ParentNode folded = CourseReader.read(ByteBuffer.wrap(Files.readAllBytes(Paths.get(coursePath))));
+                replay(folded, snapshotSequence, upTo, position - trimmed);
+                releaseCourseFile();
+                CourseWriter.write(folded, coursePath, courseId, upTo);
+                snapshotSequence = upTo;
+                trim(position);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this){
+                compacting = false;
+            }
+        }
+    }
+
+    public void awaitCompaction(){
+        // for tests and shutdown: returns once every compaction requested so far has finished
+        if (compactor == null)
+            return;
+        try {
+            compactor.submit(() -> {}).get();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void close(){
+        // a compaction or snapshot write already running is finished first, the journal file stays for the next open
+        if (compactor != null){
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        synchronized (snapshotLock){
+            closed = true;
+            synchronized (this){
+                try {
+                    if (channel != null)
+                        channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                if (root != null)
+                    root.setJournal(null);
+            }
+        }
+    }
+
+    private void releaseCourseFile(){
+        // holding snapshotLock, before the course file is replaced: columns of the open course still
+        // reading the old file are copied in, so nothing refers to a mapping of a replaced file
+        for (LeafNode leaf : mappedColumns)
+            leaf.pageIn();
+        mappedColumns.clear();
+    }
+
+    private synchronized ExecutorService getCompactor(){
+        if (compactor == null){
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "course-journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactor;
+    }
+
+    private synchronized void trim(long position) throws IOException {
+        // drop the records up to position (see getPosition), they are in the course file now. records appended since stay
+        long offset = position - trimmed;
+        byte[] tail = new byte[(int)(size - offset)];
+        ByteBuffer buffer = ByteBuffer.wrap(tail);
+        while (buffer.hasRemaining()){
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+                throw new IOException("journal shorter than expected");
+        }
+        rewrite(tail);
+        trimmed += offset - HEADER_BYTES;
+    }
+
+    private void rewrite(byte[] records) throws IOException {
+        // new journal file next to the old one, renamed over it
+        Path temp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + records.length);
+            buffer.putInt(MAGIC);
+            buffer.putLong(courseId);
+            buffer.put(records);
+            buffer.flip();
+            while (buffer.hasRemaining())
+                out.write(buffer);
+            out.force(true);
+        }
+        // the old journal is closed before it is replaced, not every platform renames over an open file
+        if (channel != null){
+            channel.close();
+            channel = null;
+        }
+        try {
+            Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            size = HEADER_BYTES + records.length;
+        } finally {
+            // the new journal, or the old one again if it couldn't be replaced
+            channel = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(size);
+        }
+    }
+
+    private long replay(ParentNode target, long after, long upTo, long limit) throws IOException {
+        // applies records with after < sequence <= upTo found in the first limit bytes of the journal.
+        // returns where the valid records end, -1 if there is no journal of this course
+        File file = journalPath.toFile();
+        if (!file.exists())
+            return -1;
+        byte[] bytes = Files.readAllBytes(journalPath);
+        int end = (int)Math.min(bytes.length, limit);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, end);
+        if (end < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getLong() != courseId)
+            return -1;
+
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8){
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()){
+                buffer.position(start);
+                break; // torn write at the end
+            }
+            crc.reset();
+            crc.update(bytes, buffer.position(), length);
+            if ((int)crc.getValue() != checksum){
+                buffer.position(start);
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length));
+            buffer.position(buffer.position() + length);
+            long recordSequence = in.readLong();
+            if (recordSequence > upTo)
+                break;
+            if (recordSequence > after)
+                apply(target, in);
+            if (root == null)
+                sequence = Math.max(sequence, recordSequence); // opening, appends continue after the last record
+        }
+        return buffer.position();
+    }
+
+    private static void apply(ParentNode target, DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        TreeNode node = target;
+        int depth = CourseReader.readVarInt(in);
+        for (int i=0; i<depth; i++){
+            int childIdx = CourseReader.readVarInt(in);
+            if (node.isLeaf() || childIdx >= ((ParentNode)node).getChildNum())
+                throw new IOException("corrupt journal, no node at record path");
+            node = node.getChild(childIdx);
+        }
+
+        switch (type){
+            case SCORE: {
+                int ordinal = CourseReader.readVarInt(in);
+                ((LeafNode)node).setScoreAt(ordinal, in.readFloat());
+                break;
+            }
+            case SCORES: {
+                int count = CourseReader.readVarInt(in);
+                int[] ordinals = new int[count];
+                float[] scores = new float[count];
+                for (int i=0; i<count; i++){
+                    ordinals[i] = CourseReader.readVarInt(in);
+                    scores[i] = in.readFloat();
+                }
+                ((LeafNode)node).setScores(ordinals, scores, count);
+                break;
+            }
+            case NOTE: {
+                int ordinal = CourseReader.readVarInt(in);
+                String content = CourseReader.readString(in);
+                if (ordinal < 0)
+                    node.writeNote(content);
+                else
+                    ((LeafNode)node).writeNoteAt(ordinal, content);
+                break;
+            }
+            case TOTAL_SCORE:
+                ((LeafNode)node).setTotalScore(in.readFloat());
+                break;
+            case INPUT_TYPE:
+                ((LeafNode)node).setInputType(CellInputType.values()[in.readByte()]);
+                break;
+            case ADD_CHILD:
+                ((ParentNode)node).addChild(CourseReader.readSubtree(in, target.getStudentPool()));
+                break;
+            case REMOVE_CHILD:
+                ((ParentNode)node).removeChild(CourseReader.readVarInt(in));
+                break;
+            case WEIGHT:
+                ((ParentNode)node).setWeight(in.readFloat());
+                break;
+            case CRITERIA:
+                ((ParentNode)node).setCriteria(CourseReader.readString(in));
+                break;
+            default:
+                throw new IOException("corrupt journal, unknown record type " + type);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package Model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+public class CourseReader {
+    // reads course files written by CourseWriter, see there for the layout
+
+    public static ParentNode open(String filepath) throws IOException, ClassNotFoundException {
+        // a course file, or a course saved with java serialization before the course format existed
+        if (isCourseFile(filepath))
+            return read(filepath);
+        try (ObjectInputStream objis = new ObjectInputStream(new FileInputStream(filepath))) {
+            return (ParentNode) objis.readObject();
+        }
+    }
+
+    public static boolean isCourseFile(String filepath){
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filepath))) {
+            return in.readInt() == CourseWriter.MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static ParentNode read(String filepath) throws IOException {
+        // roster and tree are parsed right away, score columns stay in the mapping until first touched
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("course file too large to map: " + filepath);
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return read(buffer);
+    }
+
+    static ParentNode read(ByteBuffer buffer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+        readMark(in);
+        int infoLength = in.readInt(); // the tree has it all, CourseInfo is for the pickers
+        buffer.position(buffer.position() + infoLength);
+
+        StudentPool pool = null;
+        if (in.readBoolean()){
+            int rosterStart = buffer.position();
+            pool = StudentPool.readRoster(in);
+            // the pool would encode exactly these bytes, keep them for the next save
+            byte[] roster = new byte[buffer.position() - rosterStart];
+            buffer.duplicate().position(rosterStart).get(roster);
+            pool.setEncodedRoster(roster);
+        }
+
+        ArrayList<LeafNode> leaves = new ArrayList<>();
+        ArrayList<Integer> columnSizes = new ArrayList<>();
+        TreeNode root = readNode(in, pool, leaves, columnSizes);
+        if (root.isLeaf())
+            throw new IOException("course root is not a ParentNode");
+
+        int position = (buffer.position() + CourseWriter.COLUMN_ALIGNMENT - 1) / CourseWriter.COLUMN_ALIGNMENT * CourseWriter.COLUMN_ALIGNMENT;
+        for (int i=0; i<leaves.size(); i++){
+            int size = columnSizes.get(i);
+            if (size < 0)
+                continue; // roster never connected to this leaf
+            if ((long)position + 4L * size > buffer.limit())
+                throw new IOException("corrupt course file, score column past the end");
+            ByteBuffer region = buffer.duplicate();
+            region.position(position);
+            region.limit(position + 4 * size);
+            leaves.get(i).mapScoreColumn(region.slice().asFloatBuffer());
+            position += 4 * size;
+        }
+        return (ParentNode)root;
+    }
+
+    static class Mark {
+        // what CourseJournal needs from the header: which course, and how far its journal is folded in
+        long courseId;
+        long sequence;
+        long contentHash;
+    }
+
+    static Mark readMark(String filepath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filepath))) {
+            return readMark(in);
+        }
+    }
+
+    private static Mark readMark(DataInputStream in) throws IOException {
+        if (in.readInt() != CourseWriter.MAGIC)
+            throw new IOException("not a course file");
+        int version = in.readInt();
+        if (version != CourseWriter.VERSION)
+            throw new IOException("unsupported course file version " + version);
+        Mark mark = new Mark();
+        mark.courseId = in.readLong();
+        mark.sequence = in.readLong();
+        mark.contentHash = in.readLong();
+        return mark;
+    }
+
+    public static CourseInfo readInfo(String filepath){
+        // only the header and CourseInfo, a few hundred bytes. null if the file is no course file
+        // of this format version
+        if (!isCourseFile(filepath))
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filepath), 4096))) {
+            Mark mark = readMark(in);
+            CourseInfo info = CourseInfo.read(in);
+            info.setFileName(new File(filepath).getName());
+            info.setContentHash(mark.contentHash);
+            return info;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    static TreeNode readSubtree(DataInputStream in, StudentPool pool) throws IOException {
+        // counterpart of CourseWriter.writeSubtree, columns are read into the heap right away
+        ArrayList<LeafNode> leaves = new ArrayList<>();
+        ArrayList<Integer> columnSizes = new ArrayList<>();
+        TreeNode node = readNode(in, pool, leaves, columnSizes);
+        for (int i=0; i<leaves.size(); i++){
+            int size = columnSizes.get(i);
+            if (size < 0)
+                continue;
+            byte[] column = new byte[4 * size];
+            in.readFully(column);
+            leaves.get(i).mapScoreColumn(ByteBuffer.wrap(column).asFloatBuffer());
+        }
+        return node;
+    }
+
+    private static TreeNode readNode(DataInputStream in, StudentPool pool, ArrayList<LeafNode> leaves,
+                                     ArrayList<Integer> columnSizes) throws IOException {
+        byte kind = in.readByte();
+        boolean connected = in.readBoolean();
+        String note = readString(in);
+        TreeNode node;
+        if (kind == CourseWriter.PARENT){
+            ParentNode parent = new ParentNode(readString(in), in.readFloat());
+            int numChild = in.readInt();
+            for (int i=0; i<numChild; i++)
+                parent.addChild(readNode(in, pool, leaves, columnSizes));
+            node = parent;
+        } else if (kind == CourseWriter.LEAF){
+            LeafNode leaf = new LeafNode();
+            leaf.setTotalScore(in.readFloat());
+            leaf.setInputType(CellInputType.values()[in.readByte()]);
+            columnSizes.add(in.readInt());
+            int numNote = in.readInt();
+            for (int i=0; i<numNote; i++){
+                int ordinal = in.readInt();
+                leaf.writeNoteAt(ordinal, readString(in));
+            }
+            int numParked = in.readInt();
+            for (int i=0; i<numParked; i++){
+                int ordinal = in.readInt();
+                leaf.parkScore(ordinal, in.readFloat());
+            }
+            leaves.add(leaf);
+            node = leaf;
+        } else {
+            throw new IOException("corrupt course file, unknown node kind " + kind);
+        }
+        if (note != null)
+            node.writeNote(note);
+        if (connected)
+            node.studentPool = pool;
+        return node;
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0, shift = 0, b;
+        do {
+            b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v - 1;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        // reads straight from the buffer, so its position is where parsing stopped
+        private ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer){
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read(){
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length){
+            if (!buffer.hasRemaining())
+                return -1;
+            int numByte = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, numByte);
+            return numByte;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package Model;
+
+import java.io.IOException;
+import java.util.Random;
+
+public class CourseSnapshot {
+    // consistent copy of an open course, taken on the thread that edits it and written from any other.
+    // taking it copies the tree skeleton, notes and CourseInfo only: score columns are shared copy-on-write
+    // (LeafNode copies a column before its next write) and the roster is the pool's cached encoding
+    private ParentNode root;
+    private byte[] roster;     // null if no roster
+    private CourseInfo info;
+    private long courseId;
+    private long sequence;     // journal sequence the copy includes, 0 if not journaled
+    private long journalPosition; // journal position after those records, see CourseJournal.getPosition
+    private CourseJournal journal;
+
+    private CourseSnapshot(){}
+
+    public static CourseSnapshot take(ParentNode root) throws IOException {
+        CourseSnapshot snapshot = new CourseSnapshot();
+        snapshot.root = (ParentNode)root.copyForSnapshot();
+        StudentPool pool = root.getStudentPool();
+        snapshot.roster = pool == null ? null : pool.getEncodedRoster();
+        snapshot.info = CourseInfo.of(root);
+        snapshot.journal = root.getJournal();
+        if (snapshot.journal != null){
+            // appends come from this thread too, so sequence and position match the copy
+            snapshot.courseId = snapshot.journal.getCourseId();
+            snapshot.sequence = snapshot.journal.getSequence();
+            snapshot.journalPosition = snapshot.journal.getPosition();
+        } else {
+            snapshot.courseId = new Random().nextLong();
+        }
+        return snapshot;
+    }
+
+    public boolean writeTo(String filepath) throws IOException {
+        // a journaled course is written to its own course file and its journal trimmed,
+        // unless a compaction or checkpoint already wrote a newer one. returns whether a file was written
+        if (journal != null && journal.getCoursePath().equals(filepath))
+            return journal.writeSnapshot(this);
+        write(filepath);
+        return true;
+    }
+
+    // getters
+    public ParentNode getRoot(){return root;}
+
+    long getSequence(){return sequence;}
+
+    long getJournalPosition(){return journalPosition;}
+
+    void write(String filepath) throws IOException {
+        CourseWriter.write(root, roster, info, filepath, courseId, sequence);
+    }
+}
@@ -0,0 +1,208 @@
+package Model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+public class CourseWriter {
+    // course file, read back by CourseReader. layout (big endian, like DataOutputStream):
+    //   header : magic "GSCF", format version, course id + last journal sequence folded in (see CourseJournal)
+    //   info   : crc32c of everything after the info, then CourseInfo length-prefixed, so the
+    //            course pickers read a few hundred bytes per course (CourseReader.readInfo)
+    //   roster : StudentPool.getEncodedRoster, field values dictionary-encoded once per field
+    //   tree   : nodes in pre-order. parent: criteria, weight, #children. leaf: total score, input type,
+    //            column size, per-student notes, parked scores
+    //   columns: the score column of every leaf in tree order, raw floats, NaN for unset.
+    //            the section starts 8-byte aligned, so CourseReader maps columns in place
+    // no back-references, boxed scores or per-student objects, so the file is about 4 bytes per score.
+    // there is one format version, CourseReader rejects files of any other
+    static final int MAGIC = 0x47534346; // "GSCF"
+    static final int VERSION = 1;
+    static final int CONTENT_HASH_OFFSET = 24; // right after the header
+    static final int COLUMN_ALIGNMENT = 8;
+    public static final String EXTENSION = ".course";
+
+    static final byte PARENT = 0;
+    static final byte LEAF = 1;
+
+    public static void write(ParentNode root, String filepath) throws IOException {
+        // a journaled course records how far its journal is folded into this file
+        CourseJournal journal = root.getJournal();
+        if (journal != null)
+            write(root, filepath, journal.getCourseId(), journal.getSequence());
+        else
+            write(root, filepath, new Random().nextLong(), 0);
+    }
+
+    static void write(ParentNode root, String filepath, long courseId, long sequence) throws IOException {
+        StudentPool pool = root.getStudentPool();
+        write(root, pool == null ? null : pool.getEncodedRoster(), CourseInfo.of(root), filepath, courseId, sequence);
+    }
+
+    static void write(ParentNode root, byte[] roster, CourseInfo info, String filepath, long courseId, long sequence) throws IOException {
+        // written next to the target, synced, then renamed over it: a crash leaves either the old or the new
+        // file, never a torn one, and a course opened from the old file keeps its mapped columns (old inode)
+        Path target = Paths.get(filepath).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32C hash = new CRC32C();
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), hash))) {
+            write(root, roster, info, out, hash, courseId, sequence);
+            out.flush();
+            // the hash is known once everything after it is written
+            ByteBuffer value = ByteBuffer.allocate(8).putLong(0, hash.getValue());
+            while (value.hasRemaining())
+                file.getChannel().write(value, CONTENT_HASH_OFFSET + value.position());
+            file.getFD().sync();
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.getParent());
+    }
+
+    private static void syncDirectory(Path directory){
+        // makes the rename itself durable, not supported everywhere (e.g. windows), then the OS decides
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+
+    private static void write(ParentNode root, byte[] roster, CourseInfo info, DataOutputStream out, CRC32C hash,
+                              long courseId, long sequence) throws IOException {
+        // roster: StudentPool.getEncodedRoster of the root's pool, null if no roster.
+        // hash sees every byte written to out, the content hash placeholder is patched by the caller
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(courseId);
+        out.writeLong(sequence);
+        out.writeLong(0);
+        info.write(out);
+        hash.reset();
+
+        StudentPool pool = root.getStudentPool();
+        out.writeBoolean(roster != null);
+        if (roster != null)
+            out.write(roster);
+
+        ArrayList<LeafNode> leaves = new ArrayList<>();
+        writeNode(root, pool, out, leaves);
+        while (out.size() % COLUMN_ALIGNMENT != 0)
+            out.writeByte(0);
+        writeColumns(leaves, out);
+    }
+
+    static void writeSubtree(TreeNode node, StudentPool pool, DataOutputStream out) throws IOException {
+        // one node and everything below it with its columns, for journal records (CourseReader.readSubtree)
+        ArrayList<LeafNode> leaves = new ArrayList<>();
+        writeNode(node, pool, out, leaves);
+        writeColumns(leaves, out);
+    }
+
+    private static void writeColumns(ArrayList<LeafNode> leaves, DataOutputStream out) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(1 << 16);
+        for (LeafNode leaf : leaves){
+            if (!leaf.hasScoreColumn())
+                continue;
+            // a column never touched since the course was opened is copied from its mapping, not paged in
+            FloatBuffer mapped = leaf.getMappedScores();
+            FloatBuffer column = mapped != null ? mapped.duplicate()
+                                                : FloatBuffer.wrap(leaf.getScoreColumn(), 0, leaf.getColumnSize());
+            while (column.hasRemaining()){
+                block.clear();
+                int numFloat = Math.min(column.remaining(), block.capacity() / 4);
+                FloatBuffer window = column.duplicate();
+                window.limit(window.position() + numFloat);
+                block.asFloatBuffer().put(window);
+                column.position(column.position() + numFloat);
+                out.write(block.array(), 0, numFloat * 4);
+            }
+        }
+    }
+
+    private static void writeNode(TreeNode node, StudentPool pool, DataOutputStream out, ArrayList<LeafNode> leaves) throws IOException {
+        out.writeByte(node.isLeaf() ? LEAF : PARENT);
+        // nodes added after the roster was connected don't point at it
+        out.writeBoolean(pool != null && node.studentPool == pool);
+        writeString(out, node.getContent());
+        if (!node.isLeaf()){
+            ParentNode parent = (ParentNode)node;
+            writeString(out, parent.getCriteria());
+            out.writeFloat(parent.getWeight());
+            out.writeInt(parent.getChildNum());
+            for (TreeNode child : parent.getChildren())
+                writeNode(child, pool, out, leaves);
+            return;
+        }
+
+        LeafNode leaf = (LeafNode)node;
+        out.writeFloat(leaf.getTotalScore());
+        out.writeByte(leaf.getInputType().ordinal());
+        out.writeInt(leaf.hasScoreColumn() ? leaf.getColumnSize() : -1);
+
+        // notes: ordinal + content of every non-empty one
+        int numNote = 0;
+        for (int ordinal=0; ordinal<leaf.getNoteColumnSize(); ordinal++){
+            Note note = leaf.getNoteAt(ordinal);
+            if (note != null && note.hasNote())
+                numNote++;
+        }
+        out.writeInt(numNote);
+        for (int ordinal=0; ordinal<leaf.getNoteColumnSize(); ordinal++){
+            Note note = leaf.getNoteAt(ordinal);
+            if (note != null && note.hasNote()){
+                out.writeInt(ordinal);
+                writeString(out, note.getContent());
+            }
+        }
+
+        HashMap<Integer, Float> parked = leaf.getParkedScores();
+        out.writeInt(parked == null ? 0 : parked.size());
+        if (parked != null){
+            for (HashMap.Entry<Integer, Float> entry : parked.entrySet()){
+                out.writeInt(entry.getKey());
+                out.writeFloat(entry.getValue());
+            }
+        }
+        leaves.add(leaf);
+    }
+
+    static void writeString(DataOutputStream out, String str) throws IOException {
+        // length-prefixed UTF-8, -1 for null. writeUTF would cap notes at 64KB
+        if (str == null){
+            writeVarInt(out, -1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        // 7 bits per byte, small ids and lengths take one byte. shifted by one so -1 is one byte too
+        int v = value + 1;
+        while ((v & ~0x7F) != 0){
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+}
@@ -0,0 +1,228 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class CsvRosterReader {
+    // RFC-4180 csv reader working directly on the bytes of a memory-mapped file.
+    // records are handed out as field offsets into the mapping, a String is only created
+    // for the fields the handler asks for. quoted fields may contain commas, line breaks and "" escapes;
+    // unquoted fields are trimmed like the old String.split reader did. text is read as UTF-8.
+
+    public interface RecordHandler {
+        // record is reused, only valid during the call
+        void onRecord(CsvRecord record);
+    }
+
+    public static void read(String filepath, RecordHandler handler) throws IOException {
+        MappedByteBuffer buffer = map(filepath);
+        parse(buffer, skipByteOrderMark(buffer), buffer.limit(), handler);
+    }
+
+    static MappedByteBuffer map(String filepath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("csv file too large to map: " + filepath);
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    static int skipByteOrderMark(ByteBuffer buffer){
+        if (buffer.limit() >= 3 && (buffer.get(0) & 0xFF) == 0xEF
+                && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF)
+            return 3;
+        return 0;
+    }
+
+    static int parse(ByteBuffer buffer, int from, int to, RecordHandler handler){
+        // parse every record starting in [from, to), blank lines skipped.
+        // returns where the last record ended, which is past `to` if it runs over
+        CsvRecord record = new CsvRecord(buffer);
+        int pos = from;
+        while (pos < to){
+            record.clear();
+            pos = parseRecord(buffer, pos, buffer.limit(), record);
+            if (!record.isBlank())
+                handler.onRecord(record);
+        }
+        return pos;
+    }
+
+    static int parseFirst(ByteBuffer buffer, int from, RecordHandler handler){
+        // only the first non-blank record (the header), returns where it ended
+        CsvRecord record = new CsvRecord(buffer);
+        int pos = from;
+        while (pos < buffer.limit()){
+            record.clear();
+            pos = parseRecord(buffer, pos, buffer.limit(), record);
+            if (!record.isBlank()){
+                handler.onRecord(record);
+                break;
+            }
+        }
+        return pos;
+    }
+
+    static int findRecordStart(ByteBuffer buffer, int from, boolean inQuote){
+        // first position after a line break at or after `from` that isn't inside quotes,
+        // inQuote tells whether `from` itself is inside a quoted field
+        int limit = buffer.limit();
+        for (int p=from; p<limit; p++){
+            byte b = buffer.get(p);
+            if (b == '"')
+                inQuote = !inQuote;
+            else if (b == '\n' && !inQuote)
+                return p + 1;
+        }
+        return limit;
+    }
+
+    static int countQuotes(ByteBuffer buffer, int from, int to){
+        int count = 0;
+        for (int p=from; p<to; p++){
+            if (buffer.get(p) == '"')
+                count++;
+        }
+        return count;
+    }
+
+    private static int parseRecord(ByteBuffer buffer, int pos, int limit, CsvRecord record){
+        // returns the position right after the record's line break
+        while (true){
+            int p = pos;
+            while (p < limit && (buffer.get(p) == ' ' || buffer.get(p) == '\t'))
+                p++;
+
+            if (p < limit && buffer.get(p) == '"'){
+                p++;
+                int start = p, end;
+                boolean escaped = false;
+                while (true){
+                    if (p >= limit){
+                        end = p; // unterminated quote, take the rest of the file
+                        break;
+                    }
+                    if (buffer.get(p) == '"'){
+                        if (p+1 < limit && buffer.get(p+1) == '"'){
+                            escaped = true;
+                            p += 2;
+                            continue;
+                        }
+                        end = p;
+                        p++;
+                        break;
+                    }
+                    p++;
+                }
+                record.addField(start, end, true, escaped);
+                // anything between the closing quote and the delimiter is ignored
+                while (p < limit && !isDelimiter(buffer.get(p)))
+                    p++;
+            } else {
+                int start = pos;
+                while (p < limit && !isDelimiter(buffer.get(p)))
+                    p++;
+                record.addField(start, p, false, false);
+            }
+
+            if (p >= limit)
+                return p;
+            byte delimiter = buffer.get(p);
+            if (delimiter == ','){
+                pos = p + 1;
+                continue;
+            }
+            if (delimiter == '\r' && p+1 < limit && buffer.get(p+1) == '\n')
+                p++;
+            return p + 1;
+        }
+    }
+
+    private static boolean isDelimiter(byte b){
+        return b == ',' || b == '\n' || b == '\r';
+    }
+
+    public static class CsvRecord {
+        private ByteBuffer buffer;
+        private int numField;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] quoted = new boolean[16];
+        private boolean[] escaped = new boolean[16];
+        private byte[] scratch = new byte[64];
+
+        CsvRecord(ByteBuffer buffer){
+            this.buffer = buffer;
+        }
+
+        void clear(){numField = 0;}
+
+        void addField(int start, int end, boolean isQuoted, boolean hasEscape){
+            if (numField == starts.length){
+                int size = numField * 2;
+                starts = java.util.Arrays.copyOf(starts, size);
+                ends = java.util.Arrays.copyOf(ends, size);
+                quoted = java.util.Arrays.copyOf(quoted, size);
+                escaped = java.util.Arrays.copyOf(escaped, size);
+            }
+            starts[numField] = start;
+            ends[numField] = end;
+            quoted[numField] = isQuoted;
+            escaped[numField] = hasEscape;
+            numField++;
+        }
+
+        boolean isBlank(){
+            // an empty line parses as one empty unquoted field
+            return numField == 0 || (numField == 1 && !quoted[0] && getLength(0) == 0);
+        }
+
+        public int getFieldCount(){return numField;}
+
+        public int getLength(int idx){
+            // 0 past the last field of a short row, the arrays still hold the previous row there
+            if (idx >= numField)
+                return 0;
+            int start = starts[idx], end = ends[idx];
+            if (!quoted[idx]){
+                while (start < end && isBlank(buffer.get(start)))
+                    start++;
+                while (end > start && isBlank(buffer.get(end-1)))
+                    end--;
+            }
+            return end - start;
+        }
+
+        public String getField(int idx){
+            // materialize one field, trimmed if unquoted, "" unescaped if quoted
+            if (idx >= numField)
+                return "";
+            int start = starts[idx], end = ends[idx];
+            if (!quoted[idx]){
+                while (start < end && isBlank(buffer.get(start)))
+                    start++;
+                while (end > start && isBlank(buffer.get(end-1)))
+                    end--;
+            }
+            if (scratch.length < end - start)
+                scratch = new byte[Math.max(end - start, scratch.length * 2)];
+            int len = 0;
+            for (int p=start; p<end; p++){
+                byte b = buffer.get(p);
+                scratch[len++] = b;
+                if (b == '"' && escaped[idx])
+                    p++; // "" inside quotes
+            }
+            return new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+
+        private static boolean isBlank(byte b){return b == ' ' || b == '\t';}
+    }
+}
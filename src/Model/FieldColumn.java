@@ -0,0 +1,170 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+
+public class FieldColumn {
+    // one roster field, dictionary-encoded: every distinct value gets an id,
+    // students are stored as value ids indexed by ordinal, with a student count per value.
+    // built by StudentPool on demand and dropped when the roster changes, so not serialized
+    private String fieldName;
+    private ArrayList<String> dictionary;       // idx: value id
+    private HashMap<String, Integer> valueIds;  // reverse of dictionary
+    private int[] ids;                          // idx: student ordinal, -1 if no student or no value
+    private int[] counts;                       // idx: value id
+    private int[] ranks;                        // idx: value id, position in sorted value order, built on first use
+
+    // exact-match index: ordinals of value id v are postings[postingStart[v] .. postingStart[v+1]), built on first use
+    private int[] postingStart;
+    private int[] postings;
+    // prefix index: value ids sorted by their lower case value, built on first use
+    private int[] byLowerCase;
+    private String[] lowerCaseValues; // aligned with byLowerCase
+
+    FieldColumn(String fieldName, int numOrdinal){
+        this.fieldName = fieldName;
+        dictionary = new ArrayList<>();
+        valueIds = new HashMap<>();
+        ids = new int[numOrdinal];
+        Arrays.fill(ids, -1);
+        counts = new int[16];
+    }
+
+    void set(int ordinal, String value){
+        // only called while the pool builds the column
+        if (value == null)
+            return;
+        Integer id = valueIds.get(value);
+        if (id == null){
+            id = dictionary.size();
+            valueIds.put(value, id);
+            dictionary.add(value);
+            if (id == counts.length)
+                counts = Arrays.copyOf(counts, id * 2);
+        }
+        ids[ordinal] = id;
+        counts[id]++;
+    }
+
+    // getters
+    public String getFieldName(){return fieldName;}
+
+    public int getNumValue(){return dictionary.size();}
+
+    public int getNumOrdinal(){return ids.length;}
+
+    public String getValue(int valueId){return dictionary.get(valueId);}
+
+    public int getValueId(String value){
+        // -1 if no student has this value
+        Integer id = valueIds.get(value);
+        return id == null ? -1 : id;
+    }
+
+    public int getValueIdAt(int ordinal){return ids[ordinal];}
+
+    public int getCount(int valueId){return counts[valueId];}
+
+    public int getCount(String value){
+        int id = getValueId(value);
+        return id < 0 ? 0 : counts[id];
+    }
+
+    public int[] getOrdinalsOf(String value){
+        // every student with this value, in ordinal order
+        int id = getValueId(value);
+        if (id < 0)
+            return new int[0];
+        buildPostings();
+        return Arrays.copyOfRange(postings, postingStart[id], postingStart[id+1]);
+    }
+
+    public int[] getOrdinalsWithPrefix(String prefix){
+        // every student whose value starts with prefix ignoring case, in ordinal order
+        buildPrefixIndex();
+        buildPostings();
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        int from = Arrays.binarySearch(lowerCaseValues, lowerPrefix);
+        if (from < 0)
+            from = -from - 1;
+        else {
+            while (from > 0 && lowerCaseValues[from-1].equals(lowerPrefix))
+                from--;
+        }
+
+        int numOrdinal = 0, to = from;
+        while (to < lowerCaseValues.length && lowerCaseValues[to].startsWith(lowerPrefix))
+            numOrdinal += counts[byLowerCase[to++]];
+        int[] ret = new int[numOrdinal];
+        int filled = 0;
+        for (int i=from; i<to; i++){
+            int id = byLowerCase[i];
+            System.arraycopy(postings, postingStart[id], ret, filled, counts[id]);
+            filled += counts[id];
+        }
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    void buildIndexes(){
+        buildPostings();
+        buildPrefixIndex();
+    }
+
+    private void buildPostings(){
+        // counting sort of ordinals by value id, ordinals stay ascending within a value
+        if (postings != null)
+            return;
+        int numValue = dictionary.size();
+        int[] start = new int[numValue + 1];
+        for (int id=0; id<numValue; id++)
+            start[id+1] = start[id] + counts[id];
+        int[] next = Arrays.copyOf(start, numValue);
+        int[] ret = new int[start[numValue]];
+        for (int ordinal=0; ordinal<ids.length; ordinal++){
+            if (ids[ordinal] >= 0)
+                ret[next[ids[ordinal]]++] = ordinal;
+        }
+        postingStart = start;
+        postings = ret;
+    }
+
+    private void buildPrefixIndex(){
+        if (byLowerCase != null)
+            return;
+        int numValue = dictionary.size();
+        String[] lower = new String[numValue];
+        Integer[] order = new Integer[numValue];
+        for (int id=0; id<numValue; id++){
+            lower[id] = dictionary.get(id).toLowerCase(Locale.ROOT);
+            order[id] = id;
+        }
+        Arrays.sort(order, (a,b) -> lower[a].compareTo(lower[b]));
+        int[] sortedIds = new int[numValue];
+        String[] sortedValues = new String[numValue];
+        for (int i=0; i<numValue; i++){
+            sortedIds[i] = order[i];
+            sortedValues[i] = lower[order[i]];
+        }
+        lowerCaseValues = sortedValues;
+        byLowerCase = sortedIds;
+    }
+
+    int[] getValueIds(){return ids;}
+
+    int[] getRanks(){
+        // rank of every value id in string order, comparing ranks orders students like comparing their values
+        if (ranks != null)
+            return ranks;
+        Integer[] order = new Integer[dictionary.size()];
+        for (int i=0; i<order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, (a,b) -> dictionary.get(a).compareTo(dictionary.get(b)));
+        ranks = new int[order.length];
+        for (int rank=0; rank<order.length; rank++)
+            ranks[order[rank]] = rank;
+        return ranks;
+    }
+}
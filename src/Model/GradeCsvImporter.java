@@ -0,0 +1,241 @@
+package Model;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class GradeCsvImporter {
+    // bulk scores from a csv, e.g. autograder output: one row per student, one column per assignment.
+    // rows are matched by the StudentPool primary key column (the first column if no header names it),
+    // other columns by the criteria of the ParentNode holding the LeafNode, case-insensitive.
+    // values are validated against the LeafNode while streaming, accepted scores of a column are
+    // written in one LeafNode.setScores batch at the end. empty cells leave the score as it is.
+    // the rows an assignment view has above its students (ParentNode.genTableArray, and the sample
+    // testValues_assignmentGrades.csv) may come between the header and the students: "Grading Option"
+    // and "Total"/"Total Score" are checked against the course, a column that disagrees is rejected
+    // and not imported. "Average" and "Statistics" rows are skipped.
+
+    private ParentNode root;
+    private HashMap<String, LeafNode> columnLeafs; // key: upper case criteria
+    private HashSet<String> ambiguous;              // criteria used by more than one assignment
+
+    public GradeCsvImporter(ParentNode root){
+        this.root = root;
+        columnLeafs = new HashMap<>();
+        ambiguous = new HashSet<>();
+        collectLeafs(root);
+    }
+
+    public void mapColumn(String header, LeafNode leaf){
+        // explicit mapping, e.g. for a header that doesn't match the criteria or one that is ambiguous
+        String name = header.trim().toUpperCase();
+        columnLeafs.put(name, leaf);
+        ambiguous.remove(name);
+    }
+
+    public GradeImportReport importFrom(String filepath) throws IOException {
+        GradeImportReport report = new GradeImportReport();
+        StudentPool studentPool = root.getStudentPool();
+        if (studentPool == null){
+            report.addReject(0, "", "", "", "no student pool connected");
+            return report;
+        }
+
+        RowHandler handler = new RowHandler(studentPool, report);
+        CsvRosterReader.read(filepath, handler);
+        handler.flush();
+        return report;
+    }
+
+    private void collectLeafs(ParentNode node){
+        for (TreeNode child : node.getChildren()){
+            if (!child.isLeaf()){
+                collectLeafs((ParentNode)child);
+                continue;
+            }
+            String name = node.getCriteria().trim().toUpperCase();
+            if (columnLeafs.containsKey(name))
+                ambiguous.add(name);
+            else
+                columnLeafs.put(name, (LeafNode)child);
+        }
+    }
+
+    private class RowHandler implements CsvRosterReader.RecordHandler {
+        private StudentPool studentPool;
+        private GradeImportReport report;
+        private int row;
+        private int keyIdx;
+        private String[] headers;
+        private LeafNode[] leafs;  // idx: csv column, null when not imported
+
+        // accepted scores per csv column, written in one batch
+        private int[][] ordinals;
+        private float[][] scores;
+        private int[] numScore;
+
+        RowHandler(StudentPool studentPool, GradeImportReport report){
+            this.studentPool = studentPool;
+            this.report = report;
+            row = -1; // header not seen yet
+        }
+
+        @Override
+        public void onRecord(CsvRosterReader.CsvRecord record){
+            if (row < 0){
+                readHeader(record);
+                row = 0;
+                return;
+            }
+            String key = record.getField(keyIdx);
+            int ordinal = studentPool.getOrdinal(key);
+            if (ordinal < 0 && readSummaryRow(record, key))
+                return;
+            row++;
+
+            if (ordinal < 0){
+                report.addReject(row, key, headers[keyIdx], key, "unknown student");
+                return;
+            }
+
+            for (int col=0; col<leafs.length; col++){
+                if (leafs[col] == null || record.getLength(col) == 0)
+                    continue;
+                String tok = record.getField(col);
+                String reason = validate(leafs[col], tok);
+                if (reason != null){
+                    report.addReject(row, key, headers[col], tok, reason);
+                    continue;
+                }
+                add(col, ordinal, Float.parseFloat(tok));
+            }
+        }
+
+        private void readHeader(CsvRosterReader.CsvRecord record){
+            int numCol = record.getFieldCount();
+            headers = new String[numCol];
+            for (int col=0; col<numCol; col++)
+                headers[col] = record.getField(col);
+
+            keyIdx = 0;
+            for (int col=0; col<numCol; col++){
+                if (headers[col].toUpperCase().equals(studentPool.getPrimaryKey()))
+                    keyIdx = col;
+            }
+
+            leafs = new LeafNode[numCol];
+            for (int col=0; col<numCol; col++){
+                if (col == keyIdx)
+                    continue;
+                String name = headers[col].toUpperCase();
+                if (ambiguous.contains(name) || !columnLeafs.containsKey(name))
+                    report.addSkippedColumn(headers[col]);
+                else
+                    leafs[col] = columnLeafs.get(name);
+            }
+
+            ordinals = new int[numCol][16];
+            scores = new float[numCol][16];
+            numScore = new int[numCol];
+        }
+
+        private boolean readSummaryRow(CsvRosterReader.CsvRecord record, String key){
+            // false if the row isn't one of the view's summary rows. summary rows aren't counted, their rejects are row 0
+            String label = key.trim().toUpperCase();
+            boolean option = label.equals("GRADING OPTION");
+            boolean total = label.equals("TOTAL") || label.equals("TOTAL SCORE");
+            if (!option && !total && !label.equals("AVERAGE") && !label.equals("STATISTICS"))
+                return false;
+            if (!option && !total)
+                return true;
+
+            for (int col=0; col<leafs.length; col++){
+                if (leafs[col] == null || record.getLength(col) == 0)
+                    continue;
+                String tok = record.getField(col);
+                String reason = option ? checkInputType(leafs[col], tok) : checkTotalScore(leafs[col], tok);
+                if (reason != null){
+                    report.addReject(0, key, headers[col], tok, reason);
+                    leafs[col] = null; // its scores are for another setup
+                }
+            }
+            return true;
+        }
+
+        private String checkInputType(LeafNode leaf, String tok){
+            // the view shows CellInputType names, the sample spells them "raw score", "percentage", "deduction"
+            String name = tok.trim().toLowerCase();
+            CellInputType type;
+            if (name.startsWith("raw"))
+                type = CellInputType.Raw;
+            else if (name.startsWith("deduction"))
+                type = CellInputType.Deduction;
+            else if (name.startsWith("percentage"))
+                type = CellInputType.Percentage;
+            else
+                return "unknown grading option";
+            if (type != leaf.getInputType())
+                return "grading option is " + leaf.getInputType() + " in the course";
+            return null;
+        }
+
+        private String checkTotalScore(LeafNode leaf, String tok){
+            // a percentage column doesn't use its total, an unset total is reported per score by validate
+            if (leaf.getInputType() == CellInputType.Percentage || leaf.getTotalScore().isNaN())
+                return null;
+            float total;
+            try {
+                total = Float.parseFloat(tok);
+            } catch (NumberFormatException e) {
+                return "not a number";
+            }
+            if (total != leaf.getTotalScore())
+                return "total score is " + leaf.getTotalScore() + " in the course";
+            return null;
+        }
+
+        private String validate(LeafNode leaf, String tok){
+            // same rule as LeafNode.treeValidation
+            float score;
+            try {
+                score = Float.parseFloat(tok);
+            } catch (NumberFormatException e) {
+                return "not a number";
+            }
+            if (Float.isNaN(score) || Float.isInfinite(score))
+                return "not a number";
+            if (leaf.getInputType() != CellInputType.Percentage && leaf.getTotalScore().isNaN())
+                return "total score not set";
+            if (!leaf.isValidScore(score)){
+                if (leaf.getInputType() == CellInputType.Percentage)
+                    return "out of range [0, 100]";
+                return "out of range [0, " + leaf.getTotalScore() + "]";
+            }
+            return null;
+        }
+
+        private void add(int col, int ordinal, float score){
+            int n = numScore[col];
+            if (n == ordinals[col].length){
+                ordinals[col] = Arrays.copyOf(ordinals[col], n * 2);
+                scores[col] = Arrays.copyOf(scores[col], n * 2);
+            }
+            ordinals[col][n] = ordinal;
+            scores[col][n] = score;
+            numScore[col] = n + 1;
+        }
+
+        void flush(){
+            report.setNumRow(Math.max(row, 0));
+            if (leafs == null)
+                return;
+            for (int col=0; col<leafs.length; col++){
+                if (leafs[col] == null || numScore[col] == 0)
+                    continue;
+                int changed = leafs[col].setScores(ordinals[col], scores[col], numScore[col]);
+                report.addAccepted(numScore[col], changed);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package Model;
+
+import java.util.ArrayList;
+
+public class GradeImportReport {
+    // outcome of GradeCsvImporter, rows are counted from the first student row (header and summary rows
+    // excluded, rejects in a summary row have row 0)
+    private int numRow;
+    private int numAccepted;
+    private int numChanged;
+    private ArrayList<String> skippedColumns; // header with no matching assignment
+    private ArrayList<Reject> rejects;
+
+    public static class Reject {
+        private int row;
+        private String key;
+        private String column;
+        private String value;
+        private String reason;
+
+        Reject(int row, String key, String column, String value, String reason){
+            this.row = row;
+            this.key = key;
+            this.column = column;
+            this.value = value;
+            this.reason = reason;
+        }
+
+        public int getRow(){return row;}
+        public String getKey(){return key;}
+        public String getColumn(){return column;}
+        public String getValue(){return value;}
+        public String getReason(){return reason;}
+
+        public String toString(){
+            return "row " + row + " [" + key + "] " + column + "=" + value + ": " + reason;
+        }
+    }
+
+    public GradeImportReport(){
+        numRow = 0;
+        numAccepted = 0;
+        numChanged = 0;
+        skippedColumns = new ArrayList<>();
+        rejects = new ArrayList<>();
+    }
+
+    // getters
+    public int getNumRow(){return numRow;}
+    public int getNumAccepted(){return numAccepted;}
+    public int getNumChanged(){return numChanged;}
+    public ArrayList<String> getSkippedColumns(){return skippedColumns;}
+    public ArrayList<Reject> getRejects(){return rejects;}
+    public boolean hasRejects(){return !rejects.isEmpty();}
+
+    // setters
+    void setNumRow(int numRow){this.numRow = numRow;}
+    void addAccepted(int numAccepted, int numChanged){
+        this.numAccepted += numAccepted;
+        this.numChanged += numChanged;
+    }
+    void addSkippedColumn(String column){skippedColumns.add(column);}
+    void addReject(int row, String key, String column, String value, String reason){
+        rejects.add(new Reject(row, key, column, value, reason));
+    }
+
+    public String toString(){
+        String ret = numRow + " rows, " + numAccepted + " scores accepted (" + numChanged + " changed), "
+                     + rejects.size() + " rejected";
+        if (!skippedColumns.isEmpty())
+            ret += ", skipped columns " + skippedColumns;
+        for (int i=0; i<rejects.size() && i<10; i++)
+            ret += "\n\t" + rejects.get(i);
+        if (rejects.size() > 10)
+            ret += "\n\t...";
+        return ret;
+    }
+}
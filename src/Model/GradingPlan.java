@@ -0,0 +1,124 @@
+package Model;
+
+import java.util.ArrayList;
+
+class GradingPlan {
+    // the criteria tree under one ParentNode flattened for recomputeDirtyScores: every ParentNode of the
+    // subtree in post-order (children before their parent), each with its terms in children order.
+    // a term is a leaf column with its CellInputType conversion constants copied out of the tree, or a
+    // child category. the weights are not folded along the path into one coefficient per column:
+    // every category is still summed on its own, in the same float expressions as sumChildrenScore, so
+    // the plan gives the tree's floats. compiled once per structural change (addChild, removeChild,
+    // setWeight, setTotalScore, setInputType), see ParentNode.getGradingPlan
+    private static final int RAW = 0, DEDUCTION = 1, PERCENTAGE = 2, CATEGORY = 3;
+
+    private ParentNode[] nodes;     // post-order, the plan's own node last
+    private int[] termStart;        // terms of nodes[i]: [termStart[i], termStart[i+1])
+    private int[] termKind;         // RAW, DEDUCTION, PERCENTAGE: leaf column, CATEGORY: child node
+    private LeafNode[] termLeaf;    // leaf terms, scores are read live from the column
+    private ParentNode[] termNode;  // category terms
+    private float[] termTotal;      // total score of a leaf term
+
+    private GradingPlan(){}
+
+    static GradingPlan compile(ParentNode root){
+        ArrayList<ParentNode> order = new ArrayList<>();
+        collectPostOrder(root, order);
+        int numTerm = 0;
+        for (ParentNode node : order)
+            numTerm += node.getChildren().size();
+
+        GradingPlan plan = new GradingPlan();
+        plan.nodes = order.toArray(new ParentNode[0]);
+        plan.termStart = new int[plan.nodes.length + 1];
+        plan.termKind = new int[numTerm];
+        plan.termLeaf = new LeafNode[numTerm];
+        plan.termNode = new ParentNode[numTerm];
+        plan.termTotal = new float[numTerm];
+        int term = 0;
+        for (int i=0; i<plan.nodes.length; i++){
+            plan.termStart[i] = term;
+            for (TreeNode child : plan.nodes[i].getChildren()){
+                if (child.isLeaf()){
+                    LeafNode leaf = (LeafNode)child;
+                    plan.termLeaf[term] = leaf;
+                    plan.termTotal[term] = leaf.getTotalScore();
+                    switch (leaf.getInputType()){
+                        case Raw:
+                            plan.termKind[term] = RAW;
+                            break;
+                        case Deduction:
+                            plan.termKind[term] = DEDUCTION;
+                            break;
+                        case Percentage:
+                            plan.termKind[term] = PERCENTAGE;
+                            break;
+                        default:
+                            assert(false);
+                    }
+                } else {
+                    plan.termKind[term] = CATEGORY;
+                    plan.termNode[term] = (ParentNode)child;
+                }
+                term++;
+            }
+        }
+        plan.termStart[plan.nodes.length] = term;
+        return plan;
+    }
+
+    private static void collectPostOrder(ParentNode node, ArrayList<ParentNode> order){
+        for (TreeNode child : node.getChildren()){
+            if (!child.isLeaf())
+                collectPostOrder((ParentNode)child, order);
+        }
+        order.add(node);
+    }
+
+    void recomputeDirtyScores(){
+        // same work as the recursion it replaces: every out-of-date node re-sums its dirty students,
+        // a node whose students are all dirty goes column by column. post-order, so the child
+        // aggregates a node reads are current
+        for (int i=0; i<nodes.length; i++){
+            ParentNode node = nodes[i];
+            if (node.isUpToDate())
+                continue;
+            if (node.hasDirtyStudents()){
+                node.prepareAggregate();
+                if (node.isAllDirty()){
+                    node.sumChildrenColumns(0, node.getAggregateSize());
+                } else {
+                    for (int ordinal=node.nextDirtyStudent(0); ordinal>=0; ordinal=node.nextDirtyStudent(ordinal+1))
+                        node.setAggregateAt(ordinal, sumTerms(i, ordinal));
+                }
+                node.clearDirtyStudents();
+            }
+            node.markUpToDate();
+        }
+    }
+
+    private float sumTerms(int nodeIdx, int ordinal){
+        // ParentNode.sumChildrenScore with the constants taken from the plan
+        float sum = 0f;
+        for (int term=termStart[nodeIdx]; term<termStart[nodeIdx+1]; term++){
+            float total = termTotal[term];
+            switch (termKind[term]){
+                case RAW:
+                    sum += termLeaf[term].getScoreAt(ordinal) / total * 100f;
+                    break;
+                case DEDUCTION:
+                    sum += (total - termLeaf[term].getScoreAt(ordinal)) / total * 100f;
+                    break;
+                case PERCENTAGE:
+                    sum += termLeaf[term].getScoreAt(ordinal);
+                    break;
+                case CATEGORY:
+                    sum += termNode[term].getWeightedScoreAt(ordinal);
+                    break;
+                default:
+                    assert(false);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,122 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class GroupedStatistics {
+    // Statistics of one node broken down by a roster field, e.g. hw1 by CLASS YEAR.
+    // the score column is read once: every score lands in the Welford accumulator of its group
+    // (group = dictionary id in the FieldColumn) and in a (group, score) buffer,
+    // which a counting sort turns into one contiguous slice per group for the quantiles.
+    // results are kept until the node or the roster changes
+    private TreeNode node;
+    private String fieldName;
+
+    private long cachedVersion = -1;
+    private FieldColumn cachedColumn;
+    private HashMap<String, HashMap<String, Float>> cachedStatistics;
+
+    public GroupedStatistics(TreeNode node, String fieldName){
+        this.node = node;
+        this.fieldName = fieldName.toUpperCase();
+    }
+
+    public HashMap<String, HashMap<String, Float>> computeStatistics(){
+        // key: field value, val: same statistics as Statistics.computeStatistics for the students of that value.
+        // students without a score or without a value in the field are left out
+        StudentPool studentPool = node.studentPool;
+        FieldColumn column = studentPool == null ? null : studentPool.getFieldColumn(fieldName);
+        if (column == null)
+            return new HashMap<>();
+
+        if (!node.isLeaf())
+            ((ParentNode)node).recomputeDirtyScores(); // so the version is current
+        if (cachedStatistics != null && cachedVersion == node.getVersion() && cachedColumn == column)
+            return copy(cachedStatistics);
+
+        float[] percent = getPercentages();
+
+        int numGroup = column.getNumValue();
+        int[] ids = column.getValueIds();
+        int size = Math.min(percent.length, ids.length);
+
+        // the single pass over the column
+        ScoreAccumulator[] accumulators = new ScoreAccumulator[numGroup];
+        for (int g=0; g<numGroup; g++)
+            accumulators[g] = new ScoreAccumulator();
+        int[] groupOf = new int[size];
+        float[] kept = new float[size];
+        int numKept = 0;
+        for (int ordinal=0; ordinal<size; ordinal++){
+            int g = ids[ordinal];
+            float score = percent[ordinal];
+            if (g < 0 || Float.isNaN(score))
+                continue;
+            accumulators[g].add(score);
+            groupOf[numKept] = g;
+            kept[numKept++] = score;
+        }
+
+        // counting sort of the kept scores by group
+        int[] start = new int[numGroup + 1];
+        for (int g=0; g<numGroup; g++)
+            start[g+1] = start[g] + (int)accumulators[g].getCount(); // at most numKept
+        int[] next = Arrays.copyOf(start, numGroup);
+        float[] byGroup = new float[numKept];
+        for (int i=0; i<numKept; i++)
+            byGroup[next[groupOf[i]]++] = kept[i];
+
+        HashMap<String, HashMap<String, Float>> ret = new HashMap<>();
+        for (int g=0; g<numGroup; g++){
+            if (start[g] == start[g+1])
+                continue;
+            Arrays.sort(byGroup, start[g], start[g+1]);
+            float[] sorted = Arrays.copyOfRange(byGroup, start[g], start[g+1]);
+            ret.put(column.getValue(g), toMap(accumulators[g], sorted));
+        }
+
+        cachedVersion = node.getVersion();
+        cachedColumn = column;
+        cachedStatistics = ret;
+        return copy(ret);
+    }
+
+    private float[] getPercentages(){
+        // idx: student ordinal, NaN if unset
+        if (node.isLeaf()){
+            LeafNode leaf = (LeafNode)node;
+            int size = leaf.getColumnSize();
+            float[] percent = new float[size];
+            ColumnKernel.toPercentage(leaf.getScoreColumn(), size, leaf.getInputType(),
+                                      leaf.getTotalScore(), percent, 0, size);
+            return percent;
+        }
+        ParentNode parent = (ParentNode)node;
+        float[] aggregate = parent.getAggregateColumn();
+        return Arrays.copyOf(aggregate, parent.getAggregateSize());
+    }
+
+    private static HashMap<String, Float> toMap(ScoreAccumulator accumulator, float[] sorted){
+        HashMap<String, Float> retMap = new HashMap<>();
+        retMap.put("count", (float)accumulator.getCount());
+        retMap.put("min", sorted[0]);
+        retMap.put("max", sorted[sorted.length - 1]);
+        retMap.put("avg", (float)accumulator.getMean());
+        retMap.put("stddev", (float)accumulator.getStddev());
+        retMap.put("q1", Statistics.quantileOfSorted(sorted, 0.25));
+        retMap.put("median", Statistics.quantileOfSorted(sorted, 0.5));
+        retMap.put("q3", Statistics.quantileOfSorted(sorted, 0.75));
+        return retMap;
+    }
+
+    private static HashMap<String, HashMap<String, Float>> copy(HashMap<String, HashMap<String, Float>> statistics){
+        HashMap<String, HashMap<String, Float>> ret = new HashMap<>();
+        for (HashMap.Entry<String, HashMap<String, Float>> entry : statistics.entrySet())
+            ret.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        return ret;
+    }
+
+    public String toString(){
+        return "obtain GroupedStatistics by " + fieldName;
+    }
+}
@@ -3,31 +3,49 @@ package Model;
 import java.io.Serializable;
 
 public class Leaf implements Serializable, NoteInterface {
+    private static final long serialVersionUID = -7688167845685477590L;
+
     public final float default_score = Float.NaN;
 
+    // a Leaf is only a view of one row in its LeafNode score column
+    private transient LeafNode column;
+    private transient int ordinal;
+
+    // only populated when reading courses saved before scores were stored per column
     private Note note;
-    public Float value;
+    private Float value;
 
-    public Leaf(){
-        note = new Note();
-        value = default_score;
+    Leaf(LeafNode column, int ordinal){
+        this.column = column;
+        this.ordinal = ordinal;
     }
 
     // ======== required methods from Model.NoteInterface =======
-    public boolean hasNote(){ return note.hasNote();}
-    public String getContent(){return note.getContent();}
-    public void writeNote(String str){note.writeNote(str);}
+    public boolean hasNote(){
+        Note curr = column.getNoteAt(ordinal);
+        return curr != null && curr.hasNote();
+    }
+    public String getContent(){
+        Note curr = column.getNoteAt(ordinal);
+        return curr == null ? "" : curr.getContent();
+    }
+    public void writeNote(String str){column.writeNoteAt(ordinal, str);}
     // ====================================================
 
     // getters
-    public float getValue(){return value;}
+    public float getValue(){return column.getScoreAt(ordinal);}
 
     // setters
-    public void setScore(float score){value = score;}
+    public void setScore(float score){column.setScoreAt(ordinal, score);}
+
+    // legacy content, read by LeafNode when converting to a score column
+    Note getLegacyNote(){return note;}
+    Float getLegacyValue(){return value;}
 
     public String toString(){
-        if (value.isNaN())
+        float curr = getValue();
+        if (Float.isNaN(curr))
             return "";
-        return Float.toString(value);
+        return Float.toString(curr);
     }
-}
\ No newline at end of file
+}
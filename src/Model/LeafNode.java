@@ -1,26 +1,42 @@
 package Model;
 
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.FloatBuffer;
 import java.util.*;
 
 public class LeafNode extends TreeNode {
-    private HashMap<String, Leaf> allLeaf;
+    private static final long serialVersionUID = -9049814661245749764L;
+
+    private float[] scores; // idx: student ordinal from StudentPool, NaN means unset
+    private Note[] notes;   // idx: student ordinal, allocated on first note
     private CellInputType inputType;
     private Float totalScore;
+    private HashMap<String, Leaf> allLeaf; // only non-null when reading courses saved before score columns
+    private HashMap<Integer, Float> parkedScores; // key: ordinal of a withdrawn student, val: score kept until re-enrollment
+    private transient ScoreAccumulator accumulator; // built on first statistics request, then kept current by setScoreAt
+    private transient volatile FloatBuffer mappedScores; // column still in the mapped course file, copied into scores on first touch
+    private transient boolean shared; // scores is also held by a CourseSnapshot, copied before the next write
 
     public LeafNode(){
         studentPool = null;
         totalScore = Float.NaN;
-        allLeaf = new HashMap<>();
+        scores = null;
+        notes = null;
         inputType = CellInputType.Raw;
     }
 
     public void generateLeafs(String primaryKeyName){
-        ArrayList<String> allPrimaryKeys = studentPool.getPrimaryKeyAndSortBy(studentPool.getPrimaryKey());
-        for (String key : allPrimaryKeys){
-            allLeaf.put(key, new Leaf() );
-        }
+        mappedScores = null;
+        shared = false;
+        scores = new float[studentPool.getOrdinalCount()];
+        Arrays.fill(scores, Float.NaN);
+        notes = null;
+        accumulator = null;
+        markAllDirty();
+        bumpVersion();
     }
 
 
@@ -44,11 +60,33 @@ public class LeafNode extends TreeNode {
     }
 
     public void connectStudentPool(StudentPool pool){
-        assert(allLeaf.size()==0 && studentPool==null); // if not zero, meaning student already exist or pool connected
+        assert(scores==null && studentPool==null); // if not null, meaning student already exist or pool connected
         studentPool = pool;
         generateLeafs(studentPool.getPrimaryKey());
     }
 
+    public void applyRosterDelta(RosterDelta delta){
+        // withdrawn scores are parked so the column (and its statistics) only holds enrolled students,
+        // re-enrolled students get them back, notes stay in place. cost is per changed student only
+        for (int ordinal : delta.getWithdrawnOrdinals()){
+            float score = getScoreAt(ordinal);
+            if (Float.isNaN(score))
+                continue;
+            if (parkedScores == null)
+                parkedScores = new HashMap<>();
+            parkedScores.put(ordinal, score);
+            updateScoreAt(ordinal, Float.NaN);
+        }
+        for (int ordinal : delta.getEnrolledOrdinals()){
+            Float parked = parkedScores == null ? null : parkedScores.remove(ordinal);
+            if (parked != null)
+                updateScoreAt(ordinal, parked);
+            else
+                markStudentDirty(ordinal); // unscored, reads past the column end are NaN, parents still need a row
+        }
+        bumpVersion();
+    }
+
     public ArrayList<String> treeValidation(ArrayList<String> errorSofar, boolean checkRootChildrenOnly){
         assert(errorSofar.size() >= 1);
 
@@ -70,17 +108,17 @@ public class LeafNode extends TreeNode {
 
         // check every leaf has valid score
         // NaN means unset (user intentionally)
-        for (Map.Entry<String, Leaf> entry : allLeaf.entrySet()){
-            Float currScore = entry.getValue().getValue();
-            if (currScore==Float.NaN){
+        pageIn();
+        for (int ordinal=0; ordinal<getColumnSize(); ordinal++){
+            float currScore = scores[ordinal];
+            if (Float.isNaN(currScore)){
                 // intentailly empty score from user
                 continue;
             }
-            if (currScore<0 ||
-                (currScore >= totalScore && inputType != CellInputType.Percentage) ||
-                (inputType==CellInputType.Percentage && currScore > 100)) {
-                String studenInfo = studentPool.getStudentByKey(entry.getKey()).getAttribute("first name");
-                studenInfo += " ," + studentPool.getStudentByKey(entry.getKey()).getAttribute("last name");
+            if (!isValidScore(currScore)) {
+                String key = studentPool.getKeyByOrdinal(ordinal);
+                String studenInfo = studentPool.getStudentByKey(key).getAttribute("first name");
+                studenInfo += " ," + studentPool.getStudentByKey(key).getAttribute("last name");
                 errorSofar.add( "invalid score for [" + studenInfo + "] in " + lastCriteria);
             }
         }
@@ -91,31 +129,41 @@ public class LeafNode extends TreeNode {
     public HashMap<String, Float> computeFinalScore(){
         HashMap<String, Float> retmap = new HashMap<>();
 
-        for (HashMap.Entry<String, Leaf> entry : allLeaf.entrySet()) {
-            float currScore = entry.getValue().getValue();
-
-            // compute percentage of currScore according to inputType & totalScore
-            float currPercentage = 0;
-            switch (inputType){
-                case Raw:
-                    currPercentage = currScore / totalScore * 100f;
-                    break;
-                case Deduction:
-                    currPercentage = (totalScore - currScore) / totalScore * 100f;
-                    break;
-                case Percentage:
-                    currPercentage = currScore;
-                    break;
-                default:
-                    assert(false);
-            }
-
-            retmap.put(entry.getKey(), new Float(currPercentage));
+        for (int ordinal=0; ordinal<getColumnSize(); ordinal++) {
+            if (!studentPool.isEnrolled(ordinal))
+                continue;
+            float currPercentage = getPercentageAt(ordinal);
+            retmap.put(studentPool.getKeyByOrdinal(ordinal), new Float(currPercentage));
         }
 
         return retmap;
     }
 
+    public void computeFinalScore(float[] weightedScore){
+        pageIn();
+        ColumnKernel.toPercentage(scores, getColumnSize(), inputType, totalScore, weightedScore, 0, getColumnSize());
+    }
+
+    public float getPercentageAt(int ordinal){
+        // compute percentage of score according to inputType & totalScore
+        float currScore = getScoreAt(ordinal);
+        float currPercentage = 0;
+        switch (inputType){
+            case Raw:
+                currPercentage = currScore / totalScore * 100f;
+                break;
+            case Deduction:
+                currPercentage = (totalScore - currScore) / totalScore * 100f;
+                break;
+            case Percentage:
+                currPercentage = currScore;
+                break;
+            default:
+                assert(false);
+        }
+        return currPercentage;
+    }
+
     public Object[][] genTableArray(){ return null; }
 
     public TreeNode getChild(int childIndex){return null;}
@@ -124,9 +172,80 @@ public class LeafNode extends TreeNode {
     // ========================================
 
     // ========== getters ==========
-    public Leaf getLeafByKey(String key){return allLeaf.get(key);}
+    public Leaf getLeafByKey(String key){
+        if (studentPool == null || !hasScoreColumn())
+            return null;
+        int ordinal = studentPool.getOrdinal(key);
+        if (ordinal < 0)
+            return null;
+        return new Leaf(this, ordinal);
+    }
 
-    public HashMap<String, Leaf> getAllLeaf(){return allLeaf;}
+    public HashMap<String, Leaf> getAllLeaf(){
+        // built on demand, scans should use the score column directly
+        HashMap<String, Leaf> ret = new HashMap<>();
+        for (int ordinal=0; ordinal<getColumnSize(); ordinal++){
+            if (studentPool.isEnrolled(ordinal))
+                ret.put(studentPool.getKeyByOrdinal(ordinal), new Leaf(this, ordinal));
+        }
+        return ret;
+    }
+
+    public float getScoreAt(int ordinal){
+        if (mappedScores != null)
+            pageIn();
+        if (scores == null || ordinal >= scores.length)
+            return Float.NaN;
+        return scores[ordinal];
+    }
+
+    public Note getNoteAt(int ordinal){
+        if (notes == null || ordinal >= notes.length)
+            return null;
+        return notes[ordinal];
+    }
+
+    public ScoreAccumulator getAccumulator(){
+        // raw score statistics of this column, see Statistics for conversion to percentage
+        if (accumulator == null){
+            pageIn();
+            accumulator = new ScoreAccumulator();
+            accumulator.rebuild(scores, getColumnSize());
+        }
+        return accumulator;
+    }
+
+    int getColumnSize(){
+        // known without paging the column in
+        FloatBuffer mapped = mappedScores;
+        if (mapped != null)
+            return mapped.limit();
+        return scores == null ? 0 : scores.length;
+    }
+
+    float[] getScoreColumn(){
+        pageIn();
+        return scores;
+    }
+
+    boolean hasScoreColumn(){return scores != null || mappedScores != null;}
+
+    FloatBuffer getMappedScores(){return mappedScores;}
+
+    int getNoteColumnSize(){return notes == null ? 0 : notes.length;}
+
+    HashMap<Integer, Float> getParkedScores(){return parkedScores;}
+
+    public boolean isValidScore(float score){
+        // NaN means unset (user intentionally), full marks are valid
+        if (Float.isNaN(score))
+            return true;
+        if (score < 0)
+            return false;
+        if (inputType == CellInputType.Percentage)
+            return score <= 100;
+        return score <= totalScore;
+    }
 
     public Float getWeight(){return 100f;} // one Model.ParentNode has at most 1 Model.LeafNode
 
@@ -136,14 +255,204 @@ public class LeafNode extends TreeNode {
     // ========================================
 
     // ========== setters =========
-    public void setInputType(CellInputType type){inputType = type;}
+    public void setInputType(CellInputType type){
+        inputType = type;
+        markAllDirty();
+        invalidatePlan();
+        bumpVersion();
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.inputTypeChanged(this, type);
+    }
+
+    public void setTotalScore(float totalScore){
+        this.totalScore = totalScore;
+        markAllDirty();
+        invalidatePlan();
+        bumpVersion();
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.totalScoreChanged(this, totalScore);
+    }
+
+    public void setScoreAt(int ordinal, float score){
+        if (!updateScoreAt(ordinal, score))
+            return;
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.scoreChanged(this, ordinal, score);
+    }
+
+    private boolean updateScoreAt(int ordinal, float score){
+        // returns whether the score changed. roster deltas park scores through here without journaling,
+        // the course file is checkpointed after a roster merge instead
+        ensureColumnSize(ordinal+1);
+        if (Float.compare(scores[ordinal], score) == 0)
+            return false;
+        if (accumulator != null)
+            accumulator.replace(scores[ordinal], score);
+        scores[ordinal] = score;
+        markStudentDirty(ordinal);
+        bumpVersion();
+        return true;
+    }
+
+    public int setScores(int[] ordinals, float[] newScores, int count){
+        // batch of setScoreAt, e.g. from a csv import. dirty marks and version bump happen once,
+        // a batch covering a good part of the column re-aggregates the whole column instead of per student.
+        // returns how many scores actually changed
+        int maxOrdinal = -1;
+        for (int i=0; i<count; i++)
+            maxOrdinal = Math.max(maxOrdinal, ordinals[i]);
+        ensureColumnSize(maxOrdinal+1);
+
+        boolean wholeColumn = count > getColumnSize() / 4;
+        int changed = 0;
+        for (int i=0; i<count; i++){
+            int ordinal = ordinals[i];
+            if (Float.compare(scores[ordinal], newScores[i]) == 0)
+                continue;
+            if (accumulator != null)
+                accumulator.replace(scores[ordinal], newScores[i]);
+            scores[ordinal] = newScores[i];
+            if (!wholeColumn)
+                markStudentDirty(ordinal);
+            changed++;
+        }
+        if (changed > 0){
+            if (wholeColumn)
+                markAllDirty();
+            bumpVersion();
+            CourseJournal journal = getJournal();
+            if (journal != null)
+                journal.scoresChanged(this, ordinals, newScores, count);
+        }
+        return changed;
+    }
 
-    public void setTotalScore(float totalScore){this.totalScore = totalScore;}
+    public void writeNoteAt(int ordinal, String str){
+        if (notes == null || ordinal >= notes.length){
+            if (str.length() == 0)
+                return; // nothing to clear
+            Note[] grown = new Note[Math.max(ordinal+1, getColumnSize())];
+            if (notes != null)
+                System.arraycopy(notes, 0, grown, 0, notes.length);
+            notes = grown;
+        }
+        if (notes[ordinal] == null)
+            notes[ordinal] = new Note();
+        notes[ordinal].writeNote(str);
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.noteWritten(this, ordinal, str);
+        courseChanged();
+    }
+
+    void mapScoreColumn(FloatBuffer column){
+        // column region of a mapped course file (CourseReader), already sized for the roster.
+        // nothing is read until the column is first touched, a course only pages in the columns it shows
+        scores = null;
+        shared = false;
+        mappedScores = column;
+        accumulator = null;
+        markAllDirty();
+        bumpVersion();
+    }
+
+    void pageIn(){
+        FloatBuffer mapped = mappedScores;
+        if (mapped == null)
+            return;
+        synchronized (this){
+            // parallel evaluation may touch the same column from several threads
+            if (mappedScores == null)
+                return;
+            float[] column = new float[mapped.limit()];
+            mapped.duplicate().get(column);
+            scores = column;
+            mappedScores = null;
+        }
+    }
+
+    void parkScore(int ordinal, float score){
+        if (parkedScores == null)
+            parkedScores = new HashMap<>();
+        parkedScores.put(ordinal, score);
+    }
 
     public void viewAllLeaf(String padding){
-        for (Map.Entry<String, Leaf> entry : allLeaf.entrySet()){
-            System.out.println(padding+entry.getKey()+"->"+entry.getValue());
+        for (int ordinal=0; ordinal<getColumnSize(); ordinal++){
+            if (!studentPool.isEnrolled(ordinal))
+                continue;
+            System.out.println(padding+studentPool.getKeyByOrdinal(ordinal)+"->"+new Leaf(this, ordinal));
+        }
+    }
+
+    private void ensureColumnSize(int size){
+        // also makes the column writable: a column shared with a snapshot is copied first
+        pageIn();
+        if (scores == null){
+            scores = new float[size];
+            Arrays.fill(scores, Float.NaN);
+        } else if (scores.length < size){
+            int oldSize = scores.length;
+            scores = Arrays.copyOf(scores, size);
+            Arrays.fill(scores, oldSize, size, Float.NaN);
+        } else if (shared){
+            scores = scores.clone();
+        }
+        shared = false;
+    }
+
+    TreeNode copyForSnapshot(){
+        // the column itself isn't copied: both nodes hold it and this one copies it before its next write
+        LeafNode copy = new LeafNode();
+        copy.studentPool = studentPool;
+        copy.note.writeNote(note.getContent());
+        copy.totalScore = totalScore;
+        copy.inputType = inputType;
+        FloatBuffer mapped = mappedScores;
+        if (mapped != null){
+            copy.mappedScores = mapped.duplicate(); // read-only mapping, nothing to copy-on-write
+        } else if (scores != null){
+            copy.scores = scores;
+            copy.shared = true;
+            shared = true;
+        }
+        for (int ordinal=0; ordinal<getNoteColumnSize(); ordinal++){
+            if (notes[ordinal] != null && notes[ordinal].hasNote())
+                copy.writeNoteAt(ordinal, notes[ordinal].getContent());
+        }
+        if (parkedScores != null)
+            copy.parkedScores = new HashMap<>(parkedScores);
+        return copy;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        pageIn();
+        out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (allLeaf == null)
+            return;
+
+        // course saved with one Leaf object per student, move them into the score column
+        if (studentPool != null && allLeaf.size() > 0){
+            ensureColumnSize(studentPool.getOrdinalCount());
+            for (Map.Entry<String, Leaf> entry : allLeaf.entrySet()){
+                int ordinal = studentPool.getOrdinal(entry.getKey());
+                if (ordinal < 0)
+                    continue;
+                Float legacyValue = entry.getValue().getLegacyValue();
+                scores[ordinal] = legacyValue == null ? Float.NaN : legacyValue;
+                Note legacyNote = entry.getValue().getLegacyNote();
+                if (legacyNote != null && legacyNote.hasNote())
+                    writeNoteAt(ordinal, legacyNote.getContent());
+            }
         }
+        allLeaf = null;
     }
     // ========================================
 
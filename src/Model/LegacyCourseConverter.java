@@ -0,0 +1,71 @@
+package Model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+public class LegacyCourseConverter {
+    // one-way conversion of courses saved with java serialization (*.ser) into course files.
+    // the course file takes the place of the .ser in its folder, the .ser is moved into a legacy/ subfolder
+    // (the course pickers skip folders) once its course file reads back. nothing converts back,
+    // so it only runs when asked to (main), never as a side effect of opening the app
+    public static final String LEGACY_EXTENSION = ".ser";
+    public static final String LEGACY_FOLDER = "legacy";
+
+    public static ArrayList<String> convertFolder(String folderPath){
+        // returns the course files written, a course that fails to convert keeps its .ser in place
+        ArrayList<String> ret = new ArrayList<>();
+        File[] files = new File(folderPath).listFiles();
+        if (files == null)
+            return ret;
+        for (File file : files){
+            if (file.isDirectory() || !file.getName().endsWith(LEGACY_EXTENSION))
+                continue;
+            String converted = convert(file.getPath());
+            if (converted != null)
+                ret.add(converted);
+        }
+        return ret;
+    }
+
+    public static String convert(String legacyPath){
+        // returns the path of the course file, null if the .ser could not be converted
+        File legacy = new File(legacyPath);
+        String name = legacy.getName();
+        if (name.endsWith(LEGACY_EXTENSION))
+            name = name.substring(0, name.length() - LEGACY_EXTENSION.length());
+        File target = new File(legacy.getParentFile(), name + CourseWriter.EXTENSION);
+
+        try {
+            ParentNode root;
+            try (ObjectInputStream objis = new ObjectInputStream(new FileInputStream(legacy))) {
+                root = (ParentNode) objis.readObject();
+            }
+            CourseWriter.write(root, target.getPath());
+            CourseReader.read(target.getPath()); // make sure it reads back before the .ser goes away
+
+            File legacyFolder = new File(legacy.getParentFile(), LEGACY_FOLDER);
+            legacyFolder.mkdirs();
+            Files.move(legacy.toPath(), new File(legacyFolder, legacy.getName()).toPath(),
+                       StandardCopyOption.REPLACE_EXISTING);
+            return target.getPath();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public static void main(String[] args){
+        // convert every course of the given folders, both course folders by default
+        if (args.length == 0)
+            args = new String[]{"./Past_Courses/", "./InProgress_Courses/"};
+        for (String folder : args){
+            for (String converted : convertFolder(folder))
+                System.out.println("converted " + converted);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelRosterImporter {
+    // same result as StudentPool.importFromCsv, for registrar extracts with millions of rows.
+    // the mapped file is cut into chunks at record boundaries (quote-aware), chunks are parsed on the pool,
+    // then merged in file order so ordinals and the student kept for a repeated key never depend on scheduling.
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ForkJoinPool pool;
+
+    public ParallelRosterImporter(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelRosterImporter(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    public RosterImportReport importInto(StudentPool studentPool, String filepath) throws IOException {
+        MappedByteBuffer buffer = CsvRosterReader.map(filepath);
+
+        // first row, consists of field name, stored in upper case
+        ArrayList<String> fieldOrder = new ArrayList<>();
+        int bodyStart = CsvRosterReader.parseFirst(buffer, CsvRosterReader.skipByteOrderMark(buffer), record -> {
+            for (int i=0; i<record.getFieldCount(); i++)
+                fieldOrder.add(record.getField(i).toUpperCase());
+        });
+        RosterImportReport report = new RosterImportReport();
+        if (fieldOrder.isEmpty())
+            return report;
+        studentPool.registerFields(fieldOrder);
+        int keyIdx = fieldOrder.lastIndexOf(studentPool.getPrimaryKey());
+
+        int[] bounds = splitChunks(buffer, bodyStart);
+        ArrayList<ChunkTask> chunks = new ArrayList<>();
+        for (int i=0; i+1<bounds.length; i++)
+            chunks.add(new ChunkTask(buffer, bounds[i], bounds[i+1], fieldOrder, keyIdx, studentPool.getSchema()));
+        for (ChunkTask chunk : chunks)
+            pool.execute(chunk);
+        boolean aligned = true;
+        for (ChunkTask chunk : chunks){
+            chunk.join();
+            aligned &= chunk.end == chunk.to;
+        }
+        if (!aligned){
+            // a record ran over its chunk: a stray quote inside an unquoted field threw the
+            // quote parity off, so the split isn't trustworthy. parse the body in one piece instead
+            chunks.clear();
+            chunks.add(new ChunkTask(buffer, bodyStart, buffer.limit(), fieldOrder, keyIdx, studentPool.getSchema()));
+            chunks.get(0).invoke();
+        }
+        report.setNumChunk(chunks.size());
+
+        // students in file order, a repeated key replaces the earlier student like importFromCsv does
+        int row = 0;
+        for (ChunkTask chunk : chunks){
+            for (int i=0; i<chunk.students.size(); i++){
+                row++;
+                String key = chunk.keys.get(i);
+                if (key != null && studentPool.putImportedStudent(key, chunk.students.get(i)))
+                    report.addDuplicate(key, row);
+            }
+        }
+        studentPool.rosterChanged(); // once for all students, not per student
+        report.setNumRow(row);
+
+        // distinct values, one task per field name since each writes its own set, dictionary and student slot.
+        // a value seen before is swapped for the pool's shared instance, like importFromCsv does
+        LinkedHashMap<String, ArrayList<Integer>> fieldColumns = new LinkedHashMap<>();
+        for (int i=0; i<fieldOrder.size(); i++)
+            fieldColumns.computeIfAbsent(fieldOrder.get(i), k -> new ArrayList<>()).add(i);
+        ArrayList<ForkJoinTask<?>> fieldTasks = new ArrayList<>();
+        for (String fieldName : fieldColumns.keySet()){
+            HashSet<String> values = studentPool.getFieldValues(fieldName);
+            HashMap<String, String> repeated = studentPool.getRepeatedValues(fieldName);
+            ArrayList<Integer> columns = fieldColumns.get(fieldName);
+            int lastColumn = columns.get(columns.size() - 1);
+            int slot = studentPool.getSchema().getSlot(fieldName);
+            fieldTasks.add(pool.submit(() -> {
+                for (ChunkTask chunk : chunks){
+                    for (int i=0; i<chunk.rows.size(); i++){
+                        String[] rowValues = chunk.rows.get(i);
+                        for (int column : columns){
+                            if (!values.add(rowValues[column]))
+                                rowValues[column] = repeated.computeIfAbsent(rowValues[column], k -> k);
+                        }
+                        chunk.students.get(i).setValueAt(slot, rowValues[lastColumn]);
+                    }
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : fieldTasks)
+            task.join();
+
+        return report;
+    }
+
+    private int[] splitChunks(ByteBuffer buffer, int bodyStart){
+        int limit = buffer.limit();
+        long numByte = limit - bodyStart;
+        int numChunk = (int)Math.max(1, Math.min((long)pool.getParallelism() * CHUNKS_PER_THREAD,
+                                                 numByte / MIN_CHUNK_BYTES));
+        int[] nominal = new int[numChunk + 1];
+        for (int i=0; i<=numChunk; i++)
+            nominal[i] = (int)(bodyStart + numByte * i / numChunk);
+
+        // quote parity at each nominal start, from the quote count of every chunk before it
+        ArrayList<ForkJoinTask<Integer>> quoteCounts = new ArrayList<>();
+        for (int i=0; i<numChunk; i++){
+            int from = nominal[i], to = nominal[i+1];
+            quoteCounts.add(pool.submit(() -> CsvRosterReader.countQuotes(buffer, from, to)));
+        }
+
+        int[] bounds = new int[numChunk + 1];
+        bounds[0] = bodyStart;
+        boolean inQuote = false;
+        for (int i=1; i<numChunk; i++){
+            inQuote ^= (quoteCounts.get(i-1).join() & 1) == 1;
+            bounds[i] = Math.max(bounds[i-1], CsvRosterReader.findRecordStart(buffer, nominal[i], inQuote));
+        }
+        bounds[numChunk] = limit;
+        return bounds;
+    }
+
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = -7048863920277396979L;
+
+        private ByteBuffer buffer;
+        private int from, to; // byte range, records starting in it belong to this chunk
+        private ArrayList<String> fieldOrder;
+        private int keyIdx;
+        private StudentSchema schema;
+
+        private int end;
+        private ArrayList<String[]> rows = new ArrayList<>();
+        private ArrayList<Student> students = new ArrayList<>();
+        private ArrayList<String> keys = new ArrayList<>();
+
+        ChunkTask(ByteBuffer buffer, int from, int to, ArrayList<String> fieldOrder, int keyIdx, StudentSchema schema){
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.fieldOrder = fieldOrder;
+            this.keyIdx = keyIdx;
+            this.schema = schema;
+        }
+
+        @Override
+        protected void compute(){
+            end = CsvRosterReader.parse(buffer, from, to, record -> {
+                String[] values = new String[fieldOrder.size()];
+                Student currStudent = new Student(schema);
+                for (int i=0; i<values.length; i++){
+                    values[i] = record.getField(i);
+                    currStudent.addAttribute(fieldOrder.get(i), values[i]);
+                }
+                rows.add(values);
+                students.add(currStudent);
+                keys.add(keyIdx < 0 ? null : values[keyIdx]);
+            });
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelScoreEvaluator {
+    // same result as ParentNode.recomputeDirtyScores, but sibling subtrees are evaluated concurrently
+    // and the students of each node are split into ordinal ranges summed on the pool.
+    // every student is still summed in children order (ParentNode.sumChildrenScore, the same expressions
+    // as GradingPlan), so floats are identical.
+    private static final int STUDENTS_PER_TASK = 1024;
+
+    private ForkJoinPool pool;
+
+    public ParallelScoreEvaluator(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelScoreEvaluator(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    public void recomputeDirtyScores(ParentNode root){
+        if (root.getStudentPool() == null)
+            return;
+        pool.invoke(new NodeTask(root));
+    }
+
+    private static class NodeTask extends RecursiveAction {
+        private static final long serialVersionUID = -4091353381454017583L;
+
+        private ParentNode node;
+
+        NodeTask(ParentNode node){
+            this.node = node;
+        }
+
+        @Override
+        protected void compute(){
+            if (node.getRosterPool() == null || node.isUpToDate())
+                return;
+
+            // children first, each subtree only writes its own aggregate
+            ArrayList<NodeTask> subtrees = new ArrayList<>();
+            for (TreeNode child : node.getChildren()){
+                if (!child.isLeaf())
+                    subtrees.add(new NodeTask((ParentNode)child));
+            }
+            invokeAll(subtrees);
+
+            // then the students of this node, each chunk writes a disjoint range of the node's aggregate
+            if (node.hasDirtyStudents()){
+                node.prepareAggregate();
+                invokeAll(new StudentRangeTask(node, 0, node.getAggregateSize()));
+                node.clearDirtyStudents();
+            }
+            node.markUpToDate();
+        }
+    }
+
+    private static class StudentRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 2256926720852934682L;
+
+        private ParentNode node;
+        private int from, to; // student ordinal range
+
+        StudentRangeTask(ParentNode node, int from, int to){
+            this.node = node;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= STUDENTS_PER_TASK){
+                if (node.isAllDirty()){
+                    node.sumChildrenColumns(from, to);
+                    return;
+                }
+                for (int ordinal=from; ordinal<to; ordinal++){
+                    if (node.isStudentDirty(ordinal))
+                        node.setAggregateAt(ordinal, node.sumChildrenScore(ordinal));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new StudentRangeTask(node, from, mid),
+                      new StudentRangeTask(node, mid, to));
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package Model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 
 public class ParentNode extends TreeNode {
+    private static final long serialVersionUID = 8963835508422538313L;
+
     private ArrayList<TreeNode> children;
     private String criteria;
     private Float weight;
-    private HashMap<String, Float> aggregateScore; // used to record aggregation of all children
+    private transient float[] aggregate;    // idx: student ordinal, aggregation of all children
+    private transient int aggregateSize;    // entries of aggregate in use, the rest is room for students added later
+    private transient HashMap<String, Float> aggregateScore; // key: student key view of aggregate, built on demand
+    private transient BitSet dirtyStudents; // ordinals whose aggregate is out of date
+    private transient boolean allDirty;     // every aggregate entry is out of date
+    private transient long computedVersion;  // TreeNode version that aggregate was last brought up to date with
+    private transient GradingPlan gradingPlan; // compiled on demand, dropped on structural change
+    private transient CourseJournal journal;  // only set on the root of a course opened through CourseJournal
+    private transient CourseAutosave autosave; // only set on the root of a course being autosaved
 
     // ========== contructors ==========
     public ParentNode(){
@@ -15,7 +29,11 @@ public class ParentNode extends TreeNode {
         children = new ArrayList<>();
         criteria = "DEFAULT CRITERIA";
         weight = new Float(0);
-        aggregateScore = new HashMap<>();
+        aggregate = null;
+        aggregateScore = null;
+        dirtyStudents = new BitSet();
+        allDirty = true;
+        computedVersion = -1;
     }
 
     public ParentNode(String criteria, float weight){
@@ -23,7 +41,11 @@ public class ParentNode extends TreeNode {
         children = new ArrayList<>();
         this.criteria = criteria;
         this.weight =  new Float(weight);
-        aggregateScore = new HashMap<>();
+        aggregate = null;
+        aggregateScore = null;
+        dirtyStudents = new BitSet();
+        allDirty = true;
+        computedVersion = -1;
     }
 
     // ====== required methods from Model.TreeNode
@@ -63,6 +85,15 @@ public class ParentNode extends TreeNode {
 
         for (TreeNode child : children)
             child.connectStudentPool(pool);
+        markAllDirty();
+        bumpVersion();
+        checkpointJournal(); // a new roster isn't journaled, the course file has to take it
+    }
+
+    public void applyRosterDelta(RosterDelta delta){
+        // only the score columns change, aggregates follow through the dirty marks they set
+        for (TreeNode child : children)
+            child.applyRosterDelta(delta);
     }
 
     public ArrayList<String> treeValidation(ArrayList<String> errorSofar, boolean checkRootChildrenOnly){
@@ -90,36 +121,136 @@ public class ParentNode extends TreeNode {
     }
 
     public HashMap<String, Float> computeFinalScore(){
-        // aggregate all weighted scores from children & accumulate them in aggregationScore
+        // compatibility form of computeFinalScore(float[]), allocates a new map every call
+        recomputeDirtyScores();
 
-        // not first time of calling this function, set all score to zero & re-accumulate
-        if (aggregateScore.size() > 0){
-            for (HashMap.Entry<String, Float> entry : aggregateScore.entrySet()) {
-                aggregateScore.put(entry.getKey(), 0f);
-            }
+        // return a new HashMap obj that multiply each score with weight in this node
+        HashMap<String, Float> ret = new HashMap<>();
+        for (HashMap.Entry<String, Float> entry : getAggregateScore().entrySet()) {
+            ret.put(entry.getKey(), new Float(entry.getValue()*weight/100));
         }
 
-        HashMap<String, Float> childrenScore = null;
-        for (TreeNode child : children){
-            childrenScore = child.computeFinalScore();
-
-            for (HashMap.Entry<String, Float> entry : childrenScore.entrySet()) {
-                if (aggregateScore.containsKey(entry.getKey())){
-                    Float newScore = aggregateScore.get(entry.getKey()) + entry.getValue();
-                    aggregateScore.replace(entry.getKey(), newScore);
-                } else {
-                    aggregateScore.put(entry.getKey(), entry.getValue());
-                }
+        return ret;
+    }
+
+    public void computeFinalScore(float[] weightedScore){
+        // write score*weight of every student into the caller's buffer (idx: student ordinal)
+        // nothing is allocated once aggregate has been sized for the roster
+        recomputeDirtyScores();
+        for (int ordinal=0; ordinal<getAggregateSize(); ordinal++)
+            weightedScore[ordinal] = getWeightedScoreAt(ordinal);
+    }
+
+    public void recomputeDirtyScores(){
+        if (getRosterPool() == null || isUpToDate())
+            return; // nothing changed at or below this node since the last recompute
+
+        // walks the flattened subtree, children before parents, instead of recursing
+        getGradingPlan().recomputeDirtyScores();
+    }
+
+    GradingPlan getGradingPlan(){
+        if (gradingPlan == null)
+            gradingPlan = GradingPlan.compile(this);
+        return gradingPlan;
+    }
+
+    @Override
+    protected void invalidatePlan(){
+        gradingPlan = null;
+        super.invalidatePlan();
+    }
+
+    boolean isUpToDate(){return computedVersion == version;}
+
+    void markUpToDate(){computedVersion = version;}
+
+    float sumChildrenScore(int ordinal){
+        // accumulate weighted scores of all children, in children order
+        // (every evaluation path must sum in this order to get identical floats)
+        float sum = 0f;
+        for (int i=0; i<children.size(); i++){
+            TreeNode child = children.get(i);
+            if (child.isLeaf())
+                sum += ((LeafNode)child).getPercentageAt(ordinal);
+            else
+                sum += ((ParentNode)child).getWeightedScoreAt(ordinal);
+        }
+        return sum;
+    }
+
+    void sumChildrenColumns(int from, int to){
+        // same sum as sumChildrenScore for every ordinal in [from, to), one child column at a time
+        Arrays.fill(aggregate, from, to, 0f);
+        for (int i=0; i<children.size(); i++){
+            TreeNode child = children.get(i);
+            if (child.isLeaf()){
+                LeafNode leaf = (LeafNode)child;
+                ColumnKernel.addPercentage(leaf.getScoreColumn(), leaf.getColumnSize(), leaf.getInputType(),
+                                           leaf.getTotalScore(), aggregate, from, to);
+            } else {
+                ParentNode node = (ParentNode)child;
+                ColumnKernel.addWeighted(node.aggregate, node.getAggregateSize(), node.weight, aggregate, from, to);
             }
         }
+    }
 
-        // return a new HashMap obj that multiply each score with weight in this node
-        HashMap<String, Float> ret = new HashMap<>();
-        for (HashMap.Entry<String, Float> entry : aggregateScore.entrySet()) {
-            ret.put(entry.getKey(), new Float(entry.getValue()*weight/100));
+    float getWeightedScoreAt(int ordinal){
+        if (ordinal >= aggregateSize)
+            return 0f;
+        return aggregate[ordinal]*weight/100;
+    }
+
+    boolean hasDirtyStudents(){return allDirty || !dirtyStudents.isEmpty();}
+
+    boolean isAllDirty(){return allDirty;}
+
+    boolean isStudentDirty(int ordinal){return allDirty || dirtyStudents.get(ordinal);}
+
+    int nextDirtyStudent(int from){return dirtyStudents.nextSetBit(from);}
+
+    void prepareAggregate(){
+        // size aggregate for the roster. students added by a roster merge only extend it
+        // (amortized growth) and only their entries need summing
+        int numStudent = getRosterPool().getOrdinalCount();
+        if (aggregate == null || numStudent < aggregateSize){
+            aggregate = new float[numStudent];
+            aggregateSize = numStudent;
+            allDirty = true;
+        } else if (numStudent > aggregateSize){
+            if (numStudent > aggregate.length)
+                aggregate = Arrays.copyOf(aggregate, Math.max(numStudent, aggregate.length + aggregate.length/2));
+            dirtyStudents.set(aggregateSize, numStudent);
+            aggregateSize = numStudent;
         }
+    }
 
-        return ret;
+    void setAggregateAt(int ordinal, float score){aggregate[ordinal] = score;}
+
+    void clearDirtyStudents(){
+        dirtyStudents.clear();
+        allDirty = false;
+        aggregateScore = null; // map view no longer matches aggregate
+    }
+
+    int getAggregateSize(){return aggregateSize;}
+
+    ArrayList<TreeNode> getChildren(){return children;}
+
+    @Override
+    protected void markStudentDirty(int ordinal){
+        if (allDirty || dirtyStudents.get(ordinal))
+            return; // path above is already marked
+        dirtyStudents.set(ordinal);
+        super.markStudentDirty(ordinal);
+    }
+
+    @Override
+    protected void markAllDirty(){
+        if (allDirty)
+            return;
+        allDirty = true;
+        super.markAllDirty();
     }
 
     public Object[] genFieldRowArray(){
@@ -194,7 +325,7 @@ public class ParentNode extends TreeNode {
         // 3rd row : statistic button
         retTable[2][0] = new String("Statistics");
         for (int i=1; i<numCol; i++){
-            Statistics statisticsObj =  new Statistics((LeafNode)children.get(i-1).getChild(0));
+            Statistics statisticsObj =  children.get(i-1).getChild(0).getStatistics();
             retTable[2][i] = statisticsObj;
         }
 
@@ -241,40 +372,29 @@ public class ParentNode extends TreeNode {
         for (int i=1; i<=children.size(); i++)
              retTable[0][i] = children.get(i-1).getWeight();
 
-        // 2nd row: statistics
+        // 2nd row: statistics, cached by each node and pulling aggregates themselves when opened
         retTable[1][0] = "Statistics";
         for (int i=1; i<=children.size(); i++){
-            Statistics statisticsObj =  new Statistics(((ParentNode)children.get(i-1)).getAggregateScore());
+            Statistics statisticsObj =  children.get(i-1).getStatistics();
             retTable[1][i] = statisticsObj;
         }
-        retTable[1][numCol-1] = new Statistics(this.aggregateScore);
+        retTable[1][numCol-1] = getStatistics();
 
+        // aggregates are brought up to date here, no need to click calc final score first
+        recomputeDirtyScores();
         int currRow = 2;
-        if (aggregateScore.size()==0){
-            // yet click calc final score, fill in every score with buf string
-            String buf = "";
-            for(int i=currRow; i<numRow; i++){
-                Student currStudent = studentPool.getStudentByKey(studentOrder.get(i-currRow));
-                for (int j=0; j<numCol; j++){
-                    if (j==0)
-                        retTable[i][j] = currStudent;
-                    else
-                        retTable[i][j] = buf;
-                }
-            }
-        } else {
-            for(int i=currRow; i<numRow; i++){
-                String currStudentPKey =  studentOrder.get(i-currRow);
-                for (int j=0; j<numCol; j++){
-                    if (j==0) { // first column is student information
-                        Student currStudent = studentPool.getStudentByKey(currStudentPKey);
-                        retTable[i][j] = currStudent;
-                    } else if (j>0 && j<numCol-1){ // other columns are score break down
-                        ParentNode currNode = (ParentNode)children.get(j-1);
-                        retTable[i][j] = currNode.getAggregateScore().get(currStudentPKey);
-                    } else { // last column is overall final score
-                        retTable[i][j] = this.aggregateScore.get(currStudentPKey);
-                    }
+        for(int i=currRow; i<numRow; i++){
+            String currStudentPKey =  studentOrder.get(i-currRow);
+            int ordinal = studentPool.getOrdinal(currStudentPKey);
+            for (int j=0; j<numCol; j++){
+                if (j==0) { // first column is student information
+                    Student currStudent = studentPool.getStudentByKey(currStudentPKey);
+                    retTable[i][j] = currStudent;
+                } else if (j>0 && j<numCol-1){ // other columns are score break down
+                    ParentNode currNode = (ParentNode)children.get(j-1);
+                    retTable[i][j] = currNode.getAggregateAt(ordinal);
+                } else { // last column is overall final score
+                    retTable[i][j] = getAggregateAt(ordinal);
                 }
             }
         }
@@ -299,18 +419,81 @@ public class ParentNode extends TreeNode {
         return ret;
     }
     public StudentPool getStudentPool(){return studentPool;}
-    public HashMap<String, Float> getAggregateScore(){return aggregateScore;}
+    StudentPool getRosterPool(){
+        // the roster the aggregates are indexed by. a node added after the roster was connected
+        // (Controller.createChild) doesn't point at it, the nodes above it do
+        for (ParentNode node = this; node != null; node = node.parent){
+            if (node.studentPool != null)
+                return node.studentPool;
+        }
+        return null;
+    }
+    public HashMap<String, Float> getAggregateScore(){
+        // key: student key view of aggregate, recomputed first if anything changed below this node
+        recomputeDirtyScores();
+        StudentPool pool = getRosterPool();
+        if (aggregateScore == null){
+            aggregateScore = new HashMap<>();
+            for (int ordinal=0; ordinal<getAggregateSize(); ordinal++){
+                if (pool.isEnrolled(ordinal))
+                    aggregateScore.put(pool.getKeyByOrdinal(ordinal), aggregate[ordinal]);
+            }
+        }
+        return aggregateScore;
+    }
+    public Float getAggregateAt(int ordinal){
+        // aggregate of one student, recomputed first if anything changed below this node
+        recomputeDirtyScores();
+        if (ordinal < 0 || ordinal >= getAggregateSize())
+            return null;
+        return aggregate[ordinal];
+    }
+    float[] getAggregateColumn(){
+        // idx: student ordinal, current aggregate of every student in the first getAggregateSize() entries
+        recomputeDirtyScores();
+        return aggregate == null ? new float[0] : aggregate;
+    }
     public String getCriteria(){return criteria;}
     // ========================================
 
     // ========== setters ==========
-    public void setCriteria(String criteria){this.criteria = criteria;}
-    public void setWeight(float weight){this.weight = weight;}
+    public void setCriteria(String criteria){
+        this.criteria = criteria;
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.criteriaChanged(this, criteria);
+        courseChanged();
+    }
+    public void setWeight(float weight){
+        this.weight = weight;
+        bumpVersion();
+        if (parent != null){
+            parent.markAllDirty(); // weighted score of this node changed for every student
+            parent.invalidatePlan();
+        }
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.weightChanged(this, weight);
+    }
     public void addChild(TreeNode child){
         children.add(child);
+        child.parent = this;
+        markAllDirty();
+        invalidatePlan();
+        bumpVersion();
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.childAdded(this, child);
     }
     public void removeChild(int childIdx){
-        children.remove(childIdx);
+        TreeNode removed = children.remove(childIdx);
+        removed.parent = null;
+        markAllDirty();
+        invalidatePlan();
+        bumpVersion();
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.childRemoved(this, childIdx);
     }
     public void updateCurrNode(String classname, ArrayList<String> criteria_name, ArrayList<String> criteria_weight){
         this.criteria = classname;
@@ -321,7 +504,50 @@ public class ParentNode extends TreeNode {
             tmp.setCriteria(criteria_name.get(i));
             float currweight = Float.parseFloat(criteria_weight.get(i).trim());
             tmp.setWeight(currweight);
-            children.add(tmp);
+            addChild(tmp);
+        }
+        markAllDirty();
+        invalidatePlan();
+        bumpVersion();
+        checkpointJournal(); // children were dropped without removeChild
+    }
+
+    @Override
+    public CourseJournal getJournal(){
+        return parent == null ? journal : parent.getJournal();
+    }
+
+    void setJournal(CourseJournal journal){this.journal = journal;}
+
+    void setAutosave(CourseAutosave autosave){this.autosave = autosave;}
+
+    @Override
+    protected void courseChanged(){
+        if (parent != null)
+            parent.courseChanged();
+        else if (autosave != null)
+            autosave.courseChanged();
+    }
+
+    TreeNode copyForSnapshot(){
+        ParentNode copy = new ParentNode(criteria, weight);
+        copy.studentPool = studentPool;
+        copy.note.writeNote(note.getContent());
+        for (TreeNode child : children){
+            TreeNode childCopy = child.copyForSnapshot();
+            copy.children.add(childCopy);
+            childCopy.parent = copy;
+        }
+        return copy;
+    }
+
+    private void checkpointJournal(){
+        if (parent != null || journal == null)
+            return;
+        try {
+            journal.checkpoint();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
     // ========================================
@@ -331,10 +557,19 @@ public class ParentNode extends TreeNode {
         return criteria;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        for (TreeNode child : children)
+            child.parent = this;
+        dirtyStudents = new BitSet();
+        allDirty = true;
+        computedVersion = -1;
+    }
+
     // temporay test functions
     public void printAggregateResult(){
         System.out.println("Score aggregate to -> " + criteria);
-        for (HashMap.Entry<String, Float> entry : aggregateScore.entrySet()) {
+        for (HashMap.Entry<String, Float> entry : getAggregateScore().entrySet()) {
             System.out.println("    " + entry.getKey() + " get " + entry.getValue() + "%");
         }
         System.out.println("\n\n");
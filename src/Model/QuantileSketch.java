@@ -0,0 +1,91 @@
+package Model;
+
+public class QuantileSketch {
+    // mergeable approximation of a distribution of percentages, used when there are too many
+    // scores to keep a sorted copy (e.g. statistics combined across courses).
+    // scores are counted in fixed-width bins, so memory is fixed and any quantile is off by at most
+    // half a bin width inside [lowest, highest). scores outside that range are only counted,
+    // quantiles falling there report the exact min / max instead.
+    public static final float DEFAULT_LOWEST = -50f;
+    public static final float DEFAULT_HIGHEST = 200f;
+    public static final float DEFAULT_BIN_WIDTH = 0.05f;
+
+    private float lowest;
+    private float binWidth;
+    private long[] counts;
+    private long underflow, overflow;
+    private ScoreAccumulator moments; // exact count / mean / variance / min / max
+
+    public QuantileSketch(){
+        this(DEFAULT_LOWEST, DEFAULT_HIGHEST, DEFAULT_BIN_WIDTH);
+    }
+
+    public QuantileSketch(float lowest, float highest, float binWidth){
+        this.lowest = lowest;
+        this.binWidth = binWidth;
+        counts = new long[(int)Math.ceil((highest - lowest) / binWidth)];
+        underflow = 0;
+        overflow = 0;
+        moments = new ScoreAccumulator();
+    }
+
+    public void add(float percent){
+        if (Float.isNaN(percent))
+            return;
+        moments.add(percent);
+        int bin = (int)Math.floor((percent - lowest) / binWidth);
+        if (bin < 0)
+            underflow++;
+        else if (bin >= counts.length)
+            overflow++;
+        else
+            counts[bin]++;
+    }
+
+    public void merge(QuantileSketch other){
+        if (other.lowest != lowest || other.binWidth != binWidth || other.counts.length != counts.length)
+            throw new IllegalArgumentException("can't merge sketches with different bins");
+        for (int i=0; i<counts.length; i++)
+            counts[i] += other.counts[i];
+        underflow += other.underflow;
+        overflow += other.overflow;
+        moments.merge(other.moments);
+    }
+
+    public long getCount(){return moments.getCount();}
+
+    public ScoreAccumulator getMoments(){return moments;}
+
+    public float getQuantile(double q){
+        long total = getCount();
+        if (total == 0)
+            return Float.NaN;
+        // same rank as the exact (interpolated) quantile, answered with the bin's midpoint
+        long rank = (long)Math.floor(q * (total - 1));
+        if (rank < underflow)
+            return moments.getMin();
+        long seen = underflow;
+        for (int i=0; i<counts.length; i++){
+            seen += counts[i];
+            if (rank < seen){
+                float mid = lowest + (i + 0.5f) * binWidth;
+                return Math.max(moments.getMin(), Math.min(moments.getMax(), mid));
+            }
+        }
+        return moments.getMax();
+    }
+
+    public long[] getHistogram(float from, float to, int numBin){
+        // re-bin by each sketch bin's midpoint, values outside [from, to) go to the first / last bin
+        long[] histogram = new long[numBin];
+        histogram[0] += underflow;
+        histogram[numBin-1] += overflow;
+        for (int i=0; i<counts.length; i++){
+            if (counts[i] == 0)
+                continue;
+            float mid = lowest + (i + 0.5f) * binWidth;
+            histogram[Statistics.binOf(mid, from, to, numBin)] += counts[i];
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,45 @@
+package Model;
+
+import java.util.ArrayList;
+
+public class RosterDelta {
+    // outcome of StudentPool.mergeFromCsv, pushed into every score column by TreeNode.applyRosterDelta
+    private ArrayList<String> enrolledKeys;
+    private ArrayList<Integer> enrolledOrdinals; // new students and students coming back
+    private ArrayList<String> withdrawnKeys;
+    private ArrayList<Integer> withdrawnOrdinals;
+    private ArrayList<String> updatedKeys;      // still enrolled, roster attributes changed
+
+    public RosterDelta(){
+        enrolledKeys = new ArrayList<>();
+        enrolledOrdinals = new ArrayList<>();
+        withdrawnKeys = new ArrayList<>();
+        withdrawnOrdinals = new ArrayList<>();
+        updatedKeys = new ArrayList<>();
+    }
+
+    // getters
+    public ArrayList<String> getEnrolledKeys(){return enrolledKeys;}
+    public ArrayList<String> getWithdrawnKeys(){return withdrawnKeys;}
+    public ArrayList<String> getUpdatedKeys(){return updatedKeys;}
+    public boolean isEmpty(){return enrolledKeys.isEmpty() && withdrawnKeys.isEmpty() && updatedKeys.isEmpty();}
+
+    ArrayList<Integer> getEnrolledOrdinals(){return enrolledOrdinals;}
+    ArrayList<Integer> getWithdrawnOrdinals(){return withdrawnOrdinals;}
+
+    // setters
+    void addEnrolled(String key, int ordinal){
+        enrolledKeys.add(key);
+        enrolledOrdinals.add(ordinal);
+    }
+    void addWithdrawn(String key, int ordinal){
+        withdrawnKeys.add(key);
+        withdrawnOrdinals.add(ordinal);
+    }
+    void addUpdated(String key){updatedKeys.add(key);}
+
+    public String toString(){
+        return enrolledKeys.size() + " enrolled " + enrolledKeys + ", " + withdrawnKeys.size() + " withdrawn "
+               + withdrawnKeys + ", " + updatedKeys.size() + " updated " + updatedKeys;
+    }
+}
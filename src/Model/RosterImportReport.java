@@ -0,0 +1,44 @@
+package Model;
+
+import java.util.ArrayList;
+
+public class RosterImportReport {
+    // outcome of ParallelRosterImporter, rows are counted from the first student row (header excluded)
+    private int numRow;
+    private int numChunk;
+    private ArrayList<String> duplicateKeys;
+    private ArrayList<Integer> duplicateRows;
+
+    public RosterImportReport(){
+        numRow = 0;
+        numChunk = 0;
+        duplicateKeys = new ArrayList<>();
+        duplicateRows = new ArrayList<>();
+    }
+
+    // getters
+    public int getNumRow(){return numRow;}
+    public int getNumChunk(){return numChunk;}
+    public boolean hasDuplicates(){return !duplicateKeys.isEmpty();}
+    public int getNumDuplicate(){return duplicateKeys.size();}
+    public String getDuplicateKey(int idx){return duplicateKeys.get(idx);}
+    public int getDuplicateRow(int idx){return duplicateRows.get(idx);}
+
+    // setters
+    void setNumRow(int numRow){this.numRow = numRow;}
+    void setNumChunk(int numChunk){this.numChunk = numChunk;}
+    void addDuplicate(String key, int row){
+        // key was already in the pool, the student of this row replaced it
+        duplicateKeys.add(key);
+        duplicateRows.add(row);
+    }
+
+    public String toString(){
+        String ret = numRow + " rows in " + numChunk + " chunks, " + duplicateKeys.size() + " duplicate keys";
+        for (int i=0; i<duplicateKeys.size() && i<10; i++)
+            ret += "\n\trow " + duplicateRows.get(i) + ": " + duplicateKeys.get(i);
+        if (duplicateKeys.size() > 10)
+            ret += "\n\t...";
+        return ret;
+    }
+}
@@ -0,0 +1,130 @@
+package Model;
+
+public class ScoreAccumulator {
+    // running count / mean / variance (Welford) of the scores in one LeafNode column,
+    // updated in O(1) on every score change. unset (NaN) scores are not counted.
+    // min/max can't be un-done by a removal, so they're marked stale and rescanned on next read.
+    private long count; // long like Statistics.getCount, merged sketches can exceed int
+    private double mean;
+    private double m2; // sum of squared distance to mean
+    private float min, max;
+    private boolean minMaxStale;
+
+    public ScoreAccumulator(){
+        clear();
+    }
+
+    public void clear(){
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        min = Float.NaN;
+        max = Float.NaN;
+        minMaxStale = false;
+    }
+
+    public void add(float score){
+        if (Float.isNaN(score))
+            return;
+        count++;
+        double delta = score - mean;
+        mean += delta / count;
+        m2 += delta * (score - mean);
+        if (!minMaxStale){
+            if (count == 1 || score < min)
+                min = score;
+            if (count == 1 || score > max)
+                max = score;
+        }
+    }
+
+    public void remove(float score){
+        if (Float.isNaN(score))
+            return;
+        if (count <= 1){
+            clear();
+            return;
+        }
+        double delta = score - mean;
+        mean -= delta / (count - 1);
+        m2 -= delta * (score - mean);
+        if (m2 < 0)
+            m2 = 0; // rounding after many removals
+        count--;
+        if (score <= min || score >= max)
+            minMaxStale = true;
+    }
+
+    public void replace(float oldScore, float newScore){
+        remove(oldScore);
+        add(newScore);
+    }
+
+    public void merge(ScoreAccumulator other){
+        // combine two disjoint sets of scores (Chan et al. pairwise update)
+        if (other.count == 0)
+            return;
+        if (count == 0){
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            minMaxStale = other.minMaxStale;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double)count * other.count / total);
+        count = total;
+        if (other.minMaxStale)
+            minMaxStale = true;
+        if (!minMaxStale){
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    public void rebuild(float[] column, int columnSize){
+        clear();
+        for (int i=0; i<columnSize; i++)
+            add(column[i]);
+    }
+
+    public long getCount(){return count;}
+    public double getMean(){return count == 0 ? Double.NaN : mean;}
+    public double getVariance(){return count == 0 ? Double.NaN : m2 / count;} // population variance
+    public double getStddev(){return Math.sqrt(getVariance());}
+
+    // no-argument min/max are only valid while nothing was removed (add/merge only)
+    public float getMin(){return min;}
+    public float getMax(){return max;}
+
+    public float getMin(float[] column, int columnSize){
+        repairMinMax(column, columnSize);
+        return min;
+    }
+
+    public float getMax(float[] column, int columnSize){
+        repairMinMax(column, columnSize);
+        return max;
+    }
+
+    private void repairMinMax(float[] column, int columnSize){
+        if (!minMaxStale)
+            return;
+        min = Float.NaN;
+        max = Float.NaN;
+        for (int i=0; i<columnSize; i++){
+            float score = column[i];
+            if (Float.isNaN(score))
+                continue;
+            if (Float.isNaN(min) || score < min)
+                min = score;
+            if (Float.isNaN(max) || score > max)
+                max = score;
+        }
+        minMaxStale = false;
+    }
+}
@@ -1,21 +1,30 @@
 package Model;
 
-import Model.Leaf;
-import Model.LeafNode;
-
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Statistics {
     // note that this class only called to generate object that connect to a leaf node during runtime
     // thus don't need to implement serializable
+    public static final int EXACT_QUANTILE_LIMIT = 1000000; // combine() switches to a QuantileSketch above this many scores
+
     private float totalScore;
     private HashMap<String, Float> allPercentageScore;
     private LeafNode leafNode;
+    private ParentNode parentNode;
+    private float[] combinedPercent; // from combine(), every score kept
+    private QuantileSketch sketch;   // from combine(), too many scores to keep
+
+    // results for a LeafNode / ParentNode source, valid while the node version is unchanged
+    private long cachedVersion = -1;
+    private HashMap<String, Float> cachedStatistics;
+    private float[] cachedSorted;
 
     public Statistics(LeafNode leafNode){
         this.leafNode = leafNode;
+        parentNode = null;
         allPercentageScore = null;
         totalScore = 100; // [%]
     }
@@ -23,85 +32,250 @@ public class Statistics {
     public Statistics(HashMap<String, Float> aggregationScore){
         // scoreMap is from aggregation (where range in [0~100] %)
         leafNode = null;
+        parentNode = null;
         allPercentageScore = aggregationScore;
         totalScore = 100;
     }
 
+    public Statistics(ParentNode parentNode){
+        // aggregation of parentNode is pulled when statistics are computed, so it's never stale
+        leafNode = null;
+        this.parentNode = parentNode;
+        allPercentageScore = null;
+        totalScore = 100;
+    }
+
+    private Statistics(float[] combinedPercent, QuantileSketch sketch){
+        leafNode = null;
+        parentNode = null;
+        allPercentageScore = null;
+        this.combinedPercent = combinedPercent;
+        this.sketch = sketch;
+        totalScore = 100;
+    }
+
+    public static Statistics combine(ArrayList<Statistics> parts){
+        // statistics over the union of several score sets, e.g. one assignment across course offerings
+        long total = 0;
+        for (Statistics part : parts)
+            total += part.getCount();
+
+        if (total <= EXACT_QUANTILE_LIMIT){
+            float[] combined = new float[(int)total];
+            int filled = 0;
+            for (Statistics part : parts){
+                float[] percent = part.getPercentages();
+                System.arraycopy(percent, 0, combined, filled, percent.length);
+                filled += percent.length;
+            }
+            return new Statistics(combined, null);
+        }
+
+        QuantileSketch merged = new QuantileSketch();
+        for (Statistics part : parts)
+            merged.merge(part.toSketch());
+        return new Statistics(null, merged);
+    }
+
     public HashMap<String, Float> computeStatistics(){
+        // all statistics represented in percentage, unset scores are left out
+        checkCache();
+        if (cachedStatistics == null){
+            cachedStatistics = computeAllStatistics();
+            if (!isNodeSource())
+                return cachedStatistics; // map / combined sources aren't versioned, don't keep
+        }
+        return new HashMap<>(cachedStatistics);
+    }
+
+    private HashMap<String, Float> computeAllStatistics(){
+        float[] quartiles = getQuantiles(0.25, 0.5, 0.75);
+
         if (leafNode != null){
-            // from LeafNode, socre might be updated
-            // so we need to recompute to percentage every time
-
-            // convert all score in LeafNode to percentage
-            ArrayList<Float> currLeafScores = new ArrayList<>();
-            for (Map.Entry<String, Leaf> entry : leafNode.getAllLeaf().entrySet()) {
-                Float trueScore = 0f;
-                Float currScore = entry.getValue().getValue();
-                switch (leafNode.getInputType()){
-                    case Percentage:
-                        trueScore = currScore;
-                        break;
-                    case Deduction:
-                        trueScore = (leafNode.getTotalScore()-currScore) / leafNode.getTotalScore() * 100;
-                        break;
-                    case Raw:
-                        trueScore = currScore / leafNode.getTotalScore() * 100;
-                        break;
-                    default:
-                        assert(false);
-                }
-                currLeafScores.add(trueScore);
+            // from LeafNode, the column keeps running statistics of its raw scores,
+            // percentage = a * score + b, so they only need to be mapped through that line
+            ScoreAccumulator accumulator = leafNode.getAccumulator();
+            float[] column = leafNode.getScoreColumn();
+            int columnSize = leafNode.getColumnSize();
+            double a = getPercentSlope(leafNode), b = getPercentIntercept(leafNode);
+
+            double minPercent = a * accumulator.getMin(column, columnSize) + b;
+            double maxPercent = a * accumulator.getMax(column, columnSize) + b;
+            if (a < 0){
+                // deduction, lowest score deducted is the highest percentage
+                double tmp = minPercent;
+                minPercent = maxPercent;
+                maxPercent = tmp;
             }
 
-            // all statistics represented in percentage
-            float sum = 0f, sqrsum = 0f;
-            float minScore = 101, maxScore = 0;
+            return toMap(accumulator.getCount(), minPercent, maxPercent,
+                         a * accumulator.getMean() + b, Math.abs(a) * accumulator.getStddev(), quartiles);
+        }
 
-            for (Float percent : currLeafScores) {
-                sum += percent;
-                sqrsum += percent*percent;
-                minScore = Math.min(minScore, percent);
-                maxScore = Math.max(maxScore, percent);
-            }
+        ScoreAccumulator accumulator;
+        if (sketch != null){
+            accumulator = sketch.getMoments();
+        } else {
+            // one pass Welford over the percentages
+            accumulator = new ScoreAccumulator();
+            for (float percent : getPercentages())
+                accumulator.add(percent);
+        }
+
+        return toMap(accumulator.getCount(), accumulator.getMin(), accumulator.getMax(),
+                     accumulator.getMean(), accumulator.getStddev(), quartiles);
+    }
 
-            float avg = sum / currLeafScores.size();
-            float sqravg = sqrsum / currLeafScores.size();
-            float stddev = (float)Math.sqrt(sqravg - avg*avg);
+    public float getMedian(){return getQuantile(0.5);}
 
-            HashMap<String, Float> retMap = new HashMap<>();
-            retMap.put("min", minScore);
-            retMap.put("max", maxScore);
-            retMap.put("avg", avg);
-            retMap.put("stddev", stddev);
+    public float getQuantile(double q){return getQuantiles(q)[0];}
 
-            return retMap;
+    public float[] getQuantiles(double... qs){
+        // exact, interpolated between the two closest scores, unless this is a combined sketch
+        float[] ret = new float[qs.length];
+        if (sketch != null){
+            for (int i=0; i<qs.length; i++)
+                ret[i] = sketch.getQuantile(qs[i]);
+            return ret;
         }
+        float[] sorted = getSortedSnapshot();
+        for (int i=0; i<qs.length; i++)
+            ret[i] = quantileOfSorted(sorted, qs[i]);
+        return ret;
+    }
+
+    public long[] getHistogram(float from, float to, int numBin){
+        // numBin equal bins over [from, to), scores outside the range are counted in the first / last bin
+        if (sketch != null)
+            return sketch.getHistogram(from, to, numBin);
+        long[] histogram = new long[numBin];
+        for (float percent : getPercentages())
+            histogram[binOf(percent, from, to, numBin)]++;
+        return histogram;
+    }
+
+    public long getCount(){
+        if (sketch != null)
+            return sketch.getCount();
+        if (leafNode != null)
+            return leafNode.getAccumulator().getCount();
+        return getPercentages().length;
+    }
+
+    public QuantileSketch toSketch(){
+        if (sketch != null)
+            return sketch;
+        QuantileSketch ret = new QuantileSketch();
+        for (float percent : getPercentages())
+            ret.add(percent);
+        return ret;
+    }
 
+    public float[] getSortedPercentages(){
+        return getSortedSnapshot().clone();
+    }
 
-        // all statistics represented in percentage
-        float sum = 0f, sqrsum = 0f;
-        float minScore = 101, maxScore = 0;
+    private float[] getSortedSnapshot(){
+        checkCache();
+        if (cachedSorted != null)
+            return cachedSorted;
+        float[] sorted = getPercentages();
+        Arrays.sort(sorted);
+        if (isNodeSource())
+            cachedSorted = sorted;
+        return sorted;
+    }
 
-        for (Map.Entry<String, Float> entry : allPercentageScore.entrySet()) {
-            // convert score to percentage
-            float percent = entry.getValue();
+    private boolean isNodeSource(){return leafNode != null || parentNode != null;}
 
-            sum += percent;
-            sqrsum += percent*percent;
-            minScore = Math.min(minScore, percent);
-            maxScore = Math.max(maxScore, percent);
+    private void checkCache(){
+        // drop cached results once the source node changed (score, weight, structure below it)
+        if (!isNodeSource()){
+            cachedStatistics = null;
+            cachedSorted = null;
+            return;
+        }
+        long version = leafNode != null ? leafNode.getVersion() : parentNode.getVersion();
+        if (version != cachedVersion){
+            cachedVersion = version;
+            cachedStatistics = null;
+            cachedSorted = null;
         }
+    }
 
-        float avg = sum / allPercentageScore.size();
-        float sqravg = sqrsum / allPercentageScore.size();
-        float stddev = (float)Math.sqrt(sqravg - avg*avg);
+    private float[] getPercentages(){
+        // unordered snapshot of every set score, as percentage
+        if (combinedPercent != null)
+            return combinedPercent.clone();
 
-        HashMap<String, Float> retMap = new HashMap<>();
-        retMap.put("min", minScore);
-        retMap.put("max", maxScore);
-        retMap.put("avg", avg);
-        retMap.put("stddev", stddev);
+        float[] percent;
+        int size;
+        if (leafNode != null){
+            size = leafNode.getColumnSize();
+            percent = new float[size];
+            ColumnKernel.toPercentage(leafNode.getScoreColumn(), size, leafNode.getInputType(),
+                                      leafNode.getTotalScore(), percent, 0, size);
+        } else if (parentNode != null){
+            percent = Arrays.copyOf(parentNode.getAggregateColumn(), parentNode.getAggregateSize());
+            size = percent.length;
+        } else if (allPercentageScore != null){
+            percent = new float[allPercentageScore.size()];
+            size = 0;
+            for (Map.Entry<String, Float> entry : allPercentageScore.entrySet())
+                percent[size++] = entry.getValue();
+        } else {
+            return new float[0];
+        }
+
+        // drop unset scores
+        int kept = 0;
+        for (int i=0; i<size; i++){
+            if (!Float.isNaN(percent[i]))
+                percent[kept++] = percent[i];
+        }
+        return kept == percent.length ? percent : Arrays.copyOf(percent, kept);
+    }
+
+    static float quantileOfSorted(float[] sorted, double q){
+        if (sorted.length == 0)
+            return Float.NaN;
+        double rank = q * (sorted.length - 1);
+        int below = (int)Math.floor(rank);
+        int above = Math.min(below + 1, sorted.length - 1);
+        return (float)(sorted[below] + (rank - below) * (sorted[above] - sorted[below]));
+    }
+
+    static int binOf(float percent, float from, float to, int numBin){
+        int bin = (int)Math.floor((percent - from) / (to - from) * numBin);
+        return Math.max(0, Math.min(numBin - 1, bin));
+    }
+
+    static double getPercentSlope(LeafNode leaf){
+        // percentage = slope * score + intercept, see LeafNode.getPercentageAt
+        switch (leaf.getInputType()){
+            case Deduction:
+                return -100.0 / leaf.getTotalScore();
+            case Raw:
+                return 100.0 / leaf.getTotalScore();
+            default:
+                return 1;
+        }
+    }
 
+    static double getPercentIntercept(LeafNode leaf){
+        return leaf.getInputType() == CellInputType.Deduction ? 100 : 0;
+    }
+
+    private HashMap<String, Float> toMap(long count, double min, double max, double avg, double stddev, float[] quartiles){
+        HashMap<String, Float> retMap = new HashMap<>();
+        retMap.put("count", (float)count);
+        retMap.put("min", (float)min);
+        retMap.put("max", (float)max);
+        retMap.put("avg", (float)avg);
+        retMap.put("stddev", (float)stddev);
+        retMap.put("q1", quartiles[0]);
+        retMap.put("median", quartiles[1]);
+        retMap.put("q3", quartiles[2]);
         return retMap;
     }
 
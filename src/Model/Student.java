@@ -2,25 +2,41 @@ package Model;
 
 //import com.sun.xml.internal.xsom.impl.scd.Step;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 
 public class Student implements Serializable {
-    private HashMap<String, String> attributes;
-    private ArrayList<String> displayField;
+    private static final long serialVersionUID = 5006411404422893880L;
+
+    private StudentSchema schema;        // shared with every student of the pool
+    private String[] values;             // idx: schema slot, null if unset
+    private transient String[] labels;   // idx: display mode of the schema, built on first toString
+    private HashMap<String, String> attributes; // only non-null when reading courses saved before the schema
 
     public Student(){
-        attributes = new HashMap<>();
-        displayField = new ArrayList<>();
-        //displayField.add("FIRST NAME");
-        displayField.add("STUDENT ID");
+        this(new StudentSchema());
+    }
+
+    Student(StudentSchema schema){
+        this.schema = schema;
+        values = new String[schema.size()];
     }
 
-    public void addAttribute(String key, String value){attributes.put(key, value);}
-    public String getAttribute(String attributeName){ return attributes.getOrDefault(attributeName.toUpperCase(), null);}
+    public void addAttribute(String key, String value){
+        int slot = schema.addField(key);
+        if (slot >= values.length)
+            values = Arrays.copyOf(values, schema.size());
+        values[slot] = value;
+        labels = null;
+    }
+    public String getAttribute(String attributeName){
+        return getValueAt(schema.getSlot(attributeName.toUpperCase()));
+    }
     public ArrayList<String> getAllAttribute(){
         ArrayList<String> ret = new ArrayList<>();
         ret.add(this.getAttribute("LAST NAME")+", "+this.getAttribute("FIRST NAME"));
@@ -31,14 +47,50 @@ public class Student implements Serializable {
     }
 
     public void setDisplayField(ArrayList<String> fieldToShow){
-        if (displayField.size()>0)
-            displayField.clear();
+        // display fields live in the schema, so this switches every student sharing it
+        schema.setDisplayFields(fieldToShow);
+    }
 
-        for (String field : fieldToShow){
-            String currField = field.toUpperCase();
-            if (attributes.containsKey(currField) || currField.equals("NAME")){
-                displayField.add(currField);
-            }
+    // slot access for StudentPool, which owns the schema
+    String getValueAt(int slot){
+        if (slot < 0 || slot >= values.length)
+            return null;
+        return values[slot];
+    }
+
+    void setValueAt(int slot, String value){
+        values[slot] = value;
+        labels = null;
+    }
+
+    void moveToSchema(StudentSchema poolSchema, HashMap<String, String> dictionary){
+        // values into the pool schema slots, equal values share one instance
+        if (schema == poolSchema)
+            return;
+        String[] moved = new String[poolSchema.size()];
+        for (int slot=0; slot<values.length; slot++){
+            String value = values[slot];
+            if (value != null)
+                value = dictionary.computeIfAbsent(value, k -> k);
+            int poolSlot = poolSchema.addField(schema.getFieldName(slot));
+            if (poolSlot >= moved.length)
+                moved = Arrays.copyOf(moved, poolSchema.size());
+            moved[poolSlot] = value;
+        }
+        schema = poolSchema;
+        values = moved;
+        labels = null;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (attributes != null){
+            // saved before the schema, keep a schema of its own until the pool moves it into the shared one
+            schema = new StudentSchema();
+            values = new String[0];
+            for (HashMap.Entry<String, String> entry : attributes.entrySet())
+                addAttribute(entry.getKey(), entry.getValue());
+            attributes = null;
         }
     }
 
@@ -54,14 +106,22 @@ public class Student implements Serializable {
         }
         return ret;
         */
+        int mode = schema.getDisplayMode();
+        if (labels != null && mode < labels.length && labels[mode] != null)
+            return labels[mode];
+
         String ret = "";
-        for (String attribute : displayField){
-            if (attribute.toUpperCase().equals("NAME")){
-                ret += attributes.get("LAST NAME") + ", " + attributes.get("FIRST NAME");
-            } else {
-                ret += attributes.get(attribute);
+        for (String attribute : schema.getDisplayFields(mode)){
+            if (attribute.equals("NAME")){
+                ret += getAttribute("LAST NAME") + ", " + getAttribute("FIRST NAME");
+            } else if (getValueAt(schema.getSlot(attribute)) != null){
+                ret += getAttribute(attribute);
             }
         }
+
+        if (labels == null || mode >= labels.length)
+            labels = labels == null ? new String[mode+1] : Arrays.copyOf(labels, mode+1);
+        labels[mode] = ret;
         return ret;
     }
 }
@@ -4,83 +4,186 @@ import java.io.*;
 import java.util.*;
 
 public class StudentPool implements Serializable{
+    private static final long serialVersionUID = -2343169354388399625L;
+
     // assume csv format : BUID, name, title
     private String primaryKeyName;
     private HashMap<String, Student> allStudent; // key: BUID, val: Student obj
     private HashMap<String, HashSet<String>> fieldSet; // key: field name, val: all distinct content in that field
     private String displayFieldName;
+    private ArrayList<String> ordinalKeys; // idx: student ordinal, val: primary key (index into LeafNode score columns)
+    private transient HashMap<String, Integer> keyOrdinal; // reverse of ordinalKeys
+    private StudentSchema schema; // field name -> slot, shared by every Student of this pool
+    private transient HashMap<String, HashMap<String, String>> repeatedValues; // key: field name, val: shared instance of every value seen twice
+    private BitSet withdrawn; // idx: ordinal of a student dropped by mergeFromCsv, ordinal stays reserved
+    private ArrayList<String> indexedFields; // fields whose lookup indexes are rebuilt right after every import
+    private transient HashMap<String, FieldColumn> fieldColumns; // key: field name, dictionary-encoded values, dropped on roster change
+    private transient HashMap<String, int[]> sortIndex; // key: sort field, val: ordinals in display order, dropped on roster change
+    private transient byte[] encodedRoster; // roster section of a course file (writeRoster), dropped on any roster change
 
     public StudentPool(){
         primaryKeyName = "STUDENT ID";
         allStudent = new HashMap<>();
+        schema = new StudentSchema();
+        withdrawn = new BitSet();
+        indexedFields = new ArrayList<>();
         fieldSet = new HashMap<>();
         displayFieldName = "STUDENT ID"; // default display order
+        ordinalKeys = new ArrayList<>();
+        keyOrdinal = new HashMap<>();
     }
 
     public StudentPool(String primaryKeyName){
         // pass in primary key field name (need to be the same as student scv file)
         this.primaryKeyName = primaryKeyName.toUpperCase();
         allStudent = new HashMap<>();
+        schema = new StudentSchema();
+        withdrawn = new BitSet();
+        indexedFields = new ArrayList<>();
         fieldSet = new HashMap<>();
         displayFieldName = "STUDENT ID"; // default display order
+        ordinalKeys = new ArrayList<>();
+        keyOrdinal = new HashMap<>();
     }
 
 
+    public interface ImportListener {
+        // called for every student as soon as its row is imported. sort order and field indexes
+        // are brought up to date once the whole file is in
+        void studentImported(String key, Student student);
+    }
+
     public boolean importFromCsv(String filepath){
+        return importFromCsv(filepath, null);
+    }
 
-        File file = new File(filepath);
-        BufferedReader reader = null;
-        boolean firstLine = true;
+    public boolean importFromCsv(String filepath, ImportListener listener){
         ArrayList<String> fieldOrder = new ArrayList<>();
 
         try {
-            reader = new BufferedReader(new FileReader(file));
-            String text = null;
-
-            while ((text = reader.readLine()) != null) {
-                if (firstLine){
+            CsvRosterReader.read(filepath, record -> {
+                if (fieldOrder.isEmpty()){
                     // first row, consists of field name
                     // all field name stored in upper case
-                    firstLine = false;
-                    String[] tokens = text.split(",");
-                    for (String tok : tokens){
-                        tok = tok.trim().toUpperCase();
-                        fieldSet.put(tok, new HashSet<String>());
-                        fieldOrder.add(tok);
-                    }
+                    for (int i=0; i<record.getFieldCount(); i++)
+                        fieldOrder.add(record.getField(i).toUpperCase());
+                    registerFields(fieldOrder);
                 } else {
                     // consists of per student information
-                    String[] tokens = text.split(",");
-                    assert(tokens.length == fieldOrder.size());
-
-                    // construct student object & put it inallStudent when pKey is met
-                    Student currStudent = new Student();
-                    for (int i=0; i<tokens.length; i++){
-                        String fieldName = fieldOrder.get(i);
-                        String tok = tokens[i].trim();
-
-                        if (fieldName.equals(primaryKeyName)){
-                            allStudent.put(tok, currStudent);
-                        }
-
-                        fieldSet.get(fieldName).add(tok);
-                        currStudent.addAttribute(fieldName, tok);
-                    }
+                    importRecord(record, fieldOrder, listener);
                 }
-            }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            });
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         } finally {
-            try {
-                if (reader != null) {
-                    reader.close();
+            rosterChanged(); // once for the whole file, rows read before an error included
+        }
+
+        buildIndexes();
+        return true;
+    }
+
+    private void importRecord(CsvRosterReader.CsvRecord record, ArrayList<String> fieldOrder, ImportListener listener){
+        // construct student object & put it inallStudent when pKey is met
+        // missing trailing fields are empty, extra fields are ignored
+        Student currStudent = new Student(schema);
+        String key = null;
+        for (int i=0; i<fieldOrder.size(); i++){
+            String fieldName = fieldOrder.get(i);
+            String tok = addFieldValue(fieldName, record.getField(i));
+
+            if (fieldName.equals(primaryKeyName)){
+                allStudent.put(tok, currStudent);
+                assignOrdinal(tok);
+                key = tok;
+            }
+
+            currStudent.addAttribute(fieldName, tok);
+        }
+        if (listener != null && key != null)
+            listener.studentImported(key, currStudent);
+    }
+
+    public RosterImportReport importFromCsvParallel(String filepath){
+        // same result as importFromCsv, parsed on the common pool, repeated primary keys are reported
+        try {
+            RosterImportReport report = new ParallelRosterImporter().importInto(this, filepath);
+            buildIndexes();
+            return report;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public RosterDelta mergeFromCsv(String filepath){
+        // add/drop week: diff a new roster csv against this pool. students missing from it are withdrawn
+        // (their ordinal stays reserved so scores come back if they re-enroll), new students get fresh ordinals
+        // and students whose attributes changed are replaced. pass the result to TreeNode.applyRosterDelta,
+        // which only touches the score columns of the students in the delta
+        StudentPool incoming = new StudentPool(primaryKeyName);
+        if (!incoming.importFromCsv(filepath))
+            return null;
+        encodedRoster = null;
+
+        RosterDelta delta = new RosterDelta();
+        for (int slot=0; slot<incoming.schema.size(); slot++){
+            String fieldName = incoming.schema.getFieldName(slot);
+            fieldSet.putIfAbsent(fieldName, new HashSet<String>());
+            schema.addField(fieldName);
+        }
+
+        // enrollments and updates, in the order of the new csv
+        for (int i=0; i<incoming.getOrdinalCount(); i++){
+            String key = incoming.getKeyByOrdinal(i);
+            Student student = incoming.allStudent.get(key);
+            Student current = allStudent.get(key);
+            if (current != null && sameAttributes(current, student, incoming.schema))
+                continue;
+
+            Student merged = new Student(schema);
+            for (int slot=0; slot<incoming.schema.size(); slot++){
+                String value = student.getValueAt(slot);
+                if (value != null){
+                    String fieldName = incoming.schema.getFieldName(slot);
+                    merged.addAttribute(fieldName, addFieldValue(fieldName, value));
                 }
-            } catch (IOException e) {
             }
+            allStudent.put(key, merged);
+            if (current != null){
+                delta.addUpdated(key);
+                continue;
+            }
+            if (keyOrdinal.containsKey(key))
+                withdrawn.clear(keyOrdinal.get(key)); // coming back
+            else
+                assignOrdinal(key);
+            delta.addEnrolled(key, keyOrdinal.get(key));
         }
 
+        // withdrawals
+        for (int ordinal=0; ordinal<ordinalKeys.size(); ordinal++){
+            String key = ordinalKeys.get(ordinal);
+            if (!withdrawn.get(ordinal) && incoming.getOrdinal(key) < 0){
+                allStudent.remove(key);
+                withdrawn.set(ordinal);
+                delta.addWithdrawn(key, ordinal);
+            }
+        }
+
+        if (!delta.isEmpty()){
+            rosterChanged();
+            buildIndexes();
+        }
+        return delta;
+    }
+
+    private static boolean sameAttributes(Student current, Student incoming, StudentSchema incomingSchema){
+        for (int slot=0; slot<incomingSchema.size(); slot++){
+            if (!Objects.equals(current.getAttribute(incomingSchema.getFieldName(slot)), incoming.getValueAt(slot)))
+                return false;
+        }
         return true;
     }
 
@@ -110,39 +213,161 @@ public class StudentPool implements Serializable{
     public ArrayList<String> getPrimaryKeyAndSortBy(String sortField){
         //final String desiredSortField = sortField.toUpperCase();
         String desiredSortField = this.displayFieldName;
-        ArrayList<String> ret = new ArrayList<>();
-        for (String key : fieldSet.getOrDefault(primaryKeyName, null)){
-            ret.add(key);
-        }
-
         final String defaultSortKey = new String("first name").toUpperCase();
         if (fieldSet.getOrDefault(desiredSortField, null)==null){
             System.out.println("desired sort attribute not exist, sort by " + defaultSortKey);
-            Collections.sort(ret, (a,b)->{
-                return getStudentByKey(a).getAttribute(defaultSortKey).compareTo(
-                        getStudentByKey(b).getAttribute(defaultSortKey)
-                );
-            });
-            return ret;
+            desiredSortField = defaultSortKey;
+        }
+
+        int[] order = getSortIndex(desiredSortField);
+        ArrayList<String> ret = new ArrayList<>(order.length);
+        for (int ordinal : order)
+            ret.add(ordinalKeys.get(ordinal));
+        return ret;
+    }
+
+    private int[] getSortIndex(String sortField){
+        // ordinals sorted by sortField, then by first name, built once per field until the roster changes.
+        // values are compared through their dictionary rank in the field columns, never as strings
+        if (sortIndex == null)
+            sortIndex = new HashMap<>();
+        int[] index = sortIndex.get(sortField);
+        if (index != null)
+            return index;
+
+        final String defaultSortKey = "FIRST NAME";
+        int[] desired = getRankByOrdinal(sortField);
+        int[] fallback = getRankByOrdinal(defaultSortKey);
+        ArrayList<Integer> ordinals = new ArrayList<>();
+        for (int ordinal=0; ordinal<ordinalKeys.size(); ordinal++){
+            if (allStudent.containsKey(ordinalKeys.get(ordinal)))
+                ordinals.add(ordinal);
         }
 
-        Collections.sort(ret, (a,b) -> {
-            int cmpByDesired = getStudentByKey(a).getAttribute(desiredSortField).compareTo( getStudentByKey(b).getAttribute(desiredSortField) );
+        // stable sort, equal students stay in ordinal order, missing values first
+        Collections.sort(ordinals, (a,b) -> {
+            int cmpByDesired = Integer.compare(desired[a], desired[b]);
             if (cmpByDesired!=0)
                 return cmpByDesired;
             else{
-                // desired field value is the same, default then sort by last name
-                return getStudentByKey(a).getAttribute(defaultSortKey).compareTo( getStudentByKey(b).getAttribute(defaultSortKey) );
+                // desired field value is the same, default then sort by first name
+                return Integer.compare(fallback[a], fallback[b]);
             }
-        } );
+        });
+
+        index = new int[ordinals.size()];
+        for (int i=0; i<index.length; i++)
+            index[i] = ordinals.get(i);
+        sortIndex.put(sortField, index);
+        return index;
+    }
+
+    public FieldColumn getFieldColumn(String fieldName){
+        // dictionary-encoded values of one field for grouping / filtering by array scans, null if the field is unknown
+        String name = fieldName.toUpperCase();
+        int slot = schema.getSlot(name);
+        if (slot < 0)
+            return null;
+        if (fieldColumns == null)
+            fieldColumns = new HashMap<>();
+        FieldColumn column = fieldColumns.get(name);
+        if (column != null)
+            return column;
+
+        column = new FieldColumn(name, ordinalKeys.size());
+        for (int ordinal=0; ordinal<ordinalKeys.size(); ordinal++){
+            Student student = allStudent.get(ordinalKeys.get(ordinal));
+            if (student != null)
+                column.set(ordinal, student.getValueAt(slot));
+        }
+        fieldColumns.put(name, column);
+        return column;
+    }
 
+    // ============ secondary lookups ============
+    public void addIndex(String fieldName){
+        // declare a lookup field, e.g. EMAIL or LAST NAME: its indexes are built now and after every import
+        // instead of on the first search. lookups on undeclared fields still work, they just build lazily
+        String name = fieldName.toUpperCase();
+        if (!indexedFields.contains(name)){
+            indexedFields.add(name);
+            encodedRoster = null;
+        }
+        FieldColumn column = getFieldColumn(name);
+        if (column != null)
+            column.buildIndexes();
+    }
+
+    public ArrayList<String> findKeys(String fieldName, String value){
+        // primary keys of every student whose field equals value exactly, in ordinal order
+        FieldColumn column = getFieldColumn(fieldName);
+        return column == null ? new ArrayList<>() : toKeys(column.getOrdinalsOf(value));
+    }
+
+    public Student findStudent(String fieldName, String value){
+        // first student with this exact value, e.g. by email, null if none
+        ArrayList<String> keys = findKeys(fieldName, value);
+        return keys.isEmpty() ? null : getStudentByKey(keys.get(0));
+    }
+
+    public ArrayList<String> findKeysByPrefix(String fieldName, String prefix){
+        // primary keys of every student whose field starts with prefix ignoring case, in ordinal order
+        FieldColumn column = getFieldColumn(fieldName);
+        return column == null ? new ArrayList<>() : toKeys(column.getOrdinalsWithPrefix(prefix));
+    }
+
+    public ArrayList<String> searchByName(String prefix){
+        // "jump to student": prefix of any name field (first, last, middle ...) ignoring case, in ordinal order
+        boolean[] found = new boolean[ordinalKeys.size()];
+        for (String fieldName : fieldSet.keySet()){
+            FieldColumn column = getFieldColumn(fieldName);
+            if (!fieldName.contains("name".toUpperCase()) || column == null)
+                continue;
+            for (int ordinal : column.getOrdinalsWithPrefix(prefix))
+                found[ordinal] = true;
+        }
+        ArrayList<String> ret = new ArrayList<>();
+        for (int ordinal=0; ordinal<found.length; ordinal++){
+            if (found[ordinal])
+                ret.add(ordinalKeys.get(ordinal));
+        }
+        return ret;
+    }
+
+    private ArrayList<String> toKeys(int[] ordinals){
+        ArrayList<String> ret = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals)
+            ret.add(ordinalKeys.get(ordinal));
         return ret;
     }
 
+    private void buildIndexes(){
+        for (String fieldName : indexedFields){
+            FieldColumn column = getFieldColumn(fieldName);
+            if (column != null)
+                column.buildIndexes();
+        }
+    }
+    // ==============================
+
     public Student getStudentByKey(String key){
         return allStudent.getOrDefault(key, null);
     }
 
+    public int getOrdinal(String key){
+        // ordinal is the row index of this student in every LeafNode score column, -1 if unknown
+        Integer ordinal = keyOrdinal.get(key);
+        return ordinal == null || withdrawn.get(ordinal) ? -1 : ordinal;
+    }
+
+    public String getKeyByOrdinal(int ordinal){return ordinalKeys.get(ordinal);}
+
+    public int getOrdinalCount(){return ordinalKeys.size();}
+
+    public int getEnrolledCount(){return ordinalKeys.size() - withdrawn.cardinality();}
+
+    public boolean isEnrolled(int ordinal){return ordinal < ordinalKeys.size() && !withdrawn.get(ordinal);}
+
     public ArrayList<String> getDisplayOption(){
         ArrayList<String> ret = new ArrayList<>();
         boolean nameAdded = false;
@@ -164,12 +389,247 @@ public class StudentPool implements Serializable{
     public void setStudentDisplayInfo(ArrayList<String> fieldToShow){
         assert (fieldToShow.size()==1); // only allow to show one field a time
         displayFieldName = fieldToShow.get(0);
-        for (HashMap.Entry<String, Student> entry : allStudent.entrySet()) {
-            entry.getValue().setDisplayField(fieldToShow);
-        }
+        encodedRoster = null;
+        // one swap for the whole pool, every Student labels itself from the shared schema
+        schema.setDisplayFields(fieldToShow);
     }
     // =================================
 
+    private void assignOrdinal(String key){
+        // ordinals are never reused, so score columns stay aligned once allocated
+        if (!keyOrdinal.containsKey(key)){
+            keyOrdinal.put(key, ordinalKeys.size());
+            ordinalKeys.add(key);
+        }
+    }
+
+    private int[] getRankByOrdinal(String fieldName){
+        // idx: ordinal, val: rank of the student's value in the field, -1 if missing
+        int[] ret = new int[ordinalKeys.size()];
+        Arrays.fill(ret, -1);
+        FieldColumn column = getFieldColumn(fieldName);
+        if (column == null)
+            return ret;
+        int[] ranks = column.getRanks();
+        int[] ids = column.getValueIds();
+        for (int ordinal=0; ordinal<ids.length; ordinal++){
+            if (ids[ordinal] >= 0)
+                ret[ordinal] = ranks[ids[ordinal]];
+        }
+        return ret;
+    }
+
+    void rosterChanged(){
+        // a student was added or replaced, derived indexes are rebuilt on next use
+        sortIndex = null;
+        fieldColumns = null;
+        encodedRoster = null;
+    }
+
+    private String addFieldValue(String fieldName, String value){
+        // records the value in fieldSet, a value seen before is swapped for its shared instance
+        if (fieldSet.get(fieldName).add(value))
+            return value;
+        return getRepeatedValues(fieldName).computeIfAbsent(value, k -> k);
+    }
+
+    // used by ParallelRosterImporter when merging parsed chunks
+    void registerFields(ArrayList<String> fieldOrder){
+        encodedRoster = null;
+        for (String fieldName : fieldOrder){
+            fieldSet.put(fieldName, new HashSet<String>());
+            schema.addField(fieldName);
+        }
+    }
+
+    HashSet<String> getFieldValues(String fieldName){return fieldSet.get(fieldName);}
+
+    HashMap<String, String> getRepeatedValues(String fieldName){
+        if (repeatedValues == null)
+            repeatedValues = new HashMap<>();
+        return repeatedValues.computeIfAbsent(fieldName, k -> new HashMap<>());
+    }
+
+    StudentSchema getSchema(){return schema;}
+
+    boolean putImportedStudent(String key, Student student){
+        // returns whether the key was already taken. the importer calls rosterChanged once it put every student
+        boolean taken = allStudent.put(key, student) != null;
+        assignOrdinal(key);
+        return taken;
+    }
+
+    // ============ course file, see CourseWriter ============
+    byte[] getEncodedRoster() throws IOException {
+        // encoded once per roster change, so saving a course again only costs its score columns.
+        // call it from the thread that edits the roster
+        if (encodedRoster == null){
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writeRoster(new DataOutputStream(bytes));
+            encodedRoster = bytes.toByteArray();
+        }
+        return encodedRoster;
+    }
+
+    void setEncodedRoster(byte[] roster){encodedRoster = roster;}
+
+    private void writeRoster(DataOutputStream out) throws IOException {
+        // every field as a dictionary of its distinct values + one value id per student
+        CourseWriter.writeString(out, primaryKeyName);
+        CourseWriter.writeString(out, displayFieldName);
+        writeStrings(out, schema.getFieldNames());
+        writeStrings(out, schema.getDisplayFields());
+        writeStrings(out, ordinalKeys);
+        writeBits(out, withdrawn);
+        writeStrings(out, indexedFields);
+
+        BitSet present = new BitSet();
+        for (int ordinal=0; ordinal<ordinalKeys.size(); ordinal++){
+            if (allStudent.containsKey(ordinalKeys.get(ordinal)))
+                present.set(ordinal);
+        }
+        writeBits(out, present);
+
+        for (int slot=0; slot<schema.size(); slot++){
+            String fieldName = schema.getFieldName(slot);
+            ArrayList<String> dictionary = new ArrayList<>();
+            HashMap<String, Integer> ids = new HashMap<>();
+            if (fieldSet.containsKey(fieldName)){
+                for (String value : fieldSet.get(fieldName)){
+                    ids.put(value, dictionary.size());
+                    dictionary.add(value);
+                }
+            }
+            int[] valueIds = new int[ordinalKeys.size()];
+            for (int ordinal=present.nextSetBit(0); ordinal>=0; ordinal=present.nextSetBit(ordinal+1)){
+                String value = allStudent.get(ordinalKeys.get(ordinal)).getValueAt(slot);
+                if (value == null){
+                    valueIds[ordinal] = -1;
+                    continue;
+                }
+                Integer id = ids.get(value);
+                if (id == null){ // not recorded in fieldSet, e.g. set through Student.addAttribute
+                    id = dictionary.size();
+                    ids.put(value, id);
+                    dictionary.add(value);
+                }
+                valueIds[ordinal] = id;
+            }
+            writeStrings(out, dictionary);
+            for (int ordinal=present.nextSetBit(0); ordinal>=0; ordinal=present.nextSetBit(ordinal+1))
+                CourseWriter.writeVarInt(out, valueIds[ordinal]);
+        }
+
+        // fields known to fieldSet without a schema slot
+        ArrayList<String> extraFields = new ArrayList<>();
+        for (String fieldName : fieldSet.keySet()){
+            if (schema.getSlot(fieldName) < 0)
+                extraFields.add(fieldName);
+        }
+        CourseWriter.writeVarInt(out, extraFields.size());
+        for (String fieldName : extraFields){
+            CourseWriter.writeString(out, fieldName);
+            writeStrings(out, new ArrayList<>(fieldSet.get(fieldName)));
+        }
+    }
+
+    static StudentPool readRoster(DataInputStream in) throws IOException {
+        StudentPool pool = new StudentPool();
+        pool.primaryKeyName = CourseReader.readString(in);
+        pool.displayFieldName = CourseReader.readString(in);
+        for (String fieldName : readStrings(in))
+            pool.schema.addField(fieldName);
+        pool.schema.setDisplayFields(readStrings(in));
+        for (String key : readStrings(in))
+            pool.assignOrdinal(key);
+        pool.withdrawn = readBits(in);
+        pool.indexedFields = readStrings(in);
+
+        BitSet present = readBits(in);
+        Student[] students = new Student[pool.ordinalKeys.size()];
+        for (int ordinal=present.nextSetBit(0); ordinal>=0; ordinal=present.nextSetBit(ordinal+1)){
+            students[ordinal] = new Student(pool.schema);
+            pool.allStudent.put(pool.ordinalKeys.get(ordinal), students[ordinal]);
+        }
+
+        for (int slot=0; slot<pool.schema.size(); slot++){
+            ArrayList<String> dictionary = readStrings(in);
+            pool.fieldSet.put(pool.schema.getFieldName(slot), new HashSet<>(dictionary));
+            for (int ordinal=present.nextSetBit(0); ordinal>=0; ordinal=present.nextSetBit(ordinal+1)){
+                int id = CourseReader.readVarInt(in);
+                if (id >= 0)
+                    students[ordinal].setValueAt(slot, dictionary.get(id));
+            }
+        }
+
+        int numExtraField = CourseReader.readVarInt(in);
+        for (int i=0; i<numExtraField; i++){
+            String fieldName = CourseReader.readString(in);
+            pool.fieldSet.put(fieldName, new HashSet<>(readStrings(in)));
+        }
+        pool.buildIndexes();
+        return pool;
+    }
+
+    private static void writeStrings(DataOutputStream out, ArrayList<String> strings) throws IOException {
+        CourseWriter.writeVarInt(out, strings.size());
+        for (String str : strings)
+            CourseWriter.writeString(out, str);
+    }
+
+    private static ArrayList<String> readStrings(DataInputStream in) throws IOException {
+        int size = CourseReader.readVarInt(in);
+        ArrayList<String> ret = new ArrayList<>(size);
+        for (int i=0; i<size; i++)
+            ret.add(CourseReader.readString(in));
+        return ret;
+    }
+
+    private static void writeBits(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        CourseWriter.writeVarInt(out, words.length);
+        for (long word : words)
+            out.writeLong(word);
+    }
+
+    private static BitSet readBits(DataInputStream in) throws IOException {
+        long[] words = new long[CourseReader.readVarInt(in)];
+        for (int i=0; i<words.length; i++)
+            words[i] = in.readLong();
+        return BitSet.valueOf(words);
+    }
+    // ==============================
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        keyOrdinal = new HashMap<>();
+        if (indexedFields == null)
+            indexedFields = new ArrayList<>();
+        if (withdrawn == null)
+            withdrawn = new BitSet();
+        if (schema == null){
+            // pool saved before the schema, students bring their own attribute maps
+            schema = new StudentSchema();
+            HashMap<String, String> dictionary = new HashMap<>();
+            for (Student student : allStudent.values())
+                student.moveToSchema(schema, dictionary);
+            ArrayList<String> displayField = new ArrayList<>();
+            displayField.add(displayFieldName);
+            schema.setDisplayFields(displayField);
+        }
+        if (ordinalKeys == null){
+            // course saved before ordinals existed, number students in primary key order
+            ordinalKeys = new ArrayList<>();
+            ArrayList<String> keys = new ArrayList<>(allStudent.keySet());
+            Collections.sort(keys);
+            for (String key : keys)
+                assignOrdinal(key);
+        } else {
+            for (int i=0; i<ordinalKeys.size(); i++)
+                keyOrdinal.put(ordinalKeys.get(i), i);
+        }
+    }
+
     public static void main(String[] args){
         System.out.println("Test reading from csv");
         StudentPool studentPool = new StudentPool("student id");
@@ -0,0 +1,77 @@
+package Model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class StudentSchema implements Serializable {
+    private static final long serialVersionUID = -1421491648768384528L;
+
+    // field names shared by every Student of a pool, each field owns one slot of Student's value array
+    private ArrayList<String> fieldNames; // idx: slot
+    private transient HashMap<String, Integer> slots; // reverse of fieldNames
+    private ArrayList<String> displayFields;          // what Student.toString shows, the same for every student
+    private transient ArrayList<ArrayList<String>> displayModes; // idx: display mode, every display fields list used so far
+    private transient int displayMode;               // idx into displayModes of displayFields
+
+    public StudentSchema(){
+        fieldNames = new ArrayList<>();
+        slots = new HashMap<>();
+        ArrayList<String> defaultDisplay = new ArrayList<>();
+        defaultDisplay.add("STUDENT ID");
+        displayModes = new ArrayList<>();
+        setDisplayFields(defaultDisplay);
+    }
+
+    public int getSlot(String fieldName){
+        // -1 if the field is unknown
+        Integer slot = slots.get(fieldName);
+        return slot == null ? -1 : slot;
+    }
+
+    public int addField(String fieldName){
+        // slot of the field, a new one at the end if it wasn't known yet
+        Integer slot = slots.get(fieldName);
+        if (slot != null)
+            return slot;
+        slots.put(fieldName, fieldNames.size());
+        fieldNames.add(fieldName);
+        return fieldNames.size() - 1;
+    }
+
+    public String getFieldName(int slot){return fieldNames.get(slot);}
+
+    public int size(){return fieldNames.size();}
+
+    ArrayList<String> getFieldNames(){return fieldNames;}
+
+    public void setDisplayFields(ArrayList<String> fieldToShow){
+        // switch the display mode of every student, labels of a mode seen before are reused
+        ArrayList<String> fields = new ArrayList<>();
+        for (String field : fieldToShow)
+            fields.add(field.toUpperCase());
+        displayFields = fields;
+        displayMode = displayModes.indexOf(fields);
+        if (displayMode < 0){
+            displayMode = displayModes.size();
+            displayModes.add(fields);
+        }
+    }
+
+    public ArrayList<String> getDisplayFields(){return displayFields;}
+
+    int getDisplayMode(){return displayMode;}
+
+    ArrayList<String> getDisplayFields(int mode){return displayModes.get(mode);}
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        slots = new HashMap<>();
+        for (int i=0; i<fieldNames.size(); i++)
+            slots.put(fieldNames.get(i), i);
+        displayModes = new ArrayList<>();
+        setDisplayFields(displayFields);
+    }
+}
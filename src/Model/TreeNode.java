@@ -5,8 +5,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 public abstract class TreeNode implements Serializable, NoteInterface {
+    private static final long serialVersionUID = -3716047383124909586L;
+
     protected Note note;
     protected StudentPool studentPool;
+    protected transient ParentNode parent; // restored by ParentNode after deserialization
+    protected transient long version;      // bumped on every score, weight or structure change at or below this node
+    private transient Statistics statistics; // owned by this node, caches its results per version
 
     public TreeNode(){
         note = new Note();
@@ -19,11 +24,69 @@ public abstract class TreeNode implements Serializable, NoteInterface {
     public abstract TreeNode getChild(int childIndex);
     public abstract ArrayList<String> treeValidation(ArrayList<String> errorSofar, boolean checkRootChildrenOnly);
     public abstract HashMap<String, Float> computeFinalScore();
+    public abstract void computeFinalScore(float[] weightedScore); // idx: student ordinal, caller-owned buffer
+    public abstract void applyRosterDelta(RosterDelta delta); // add/drop from StudentPool.mergeFromCsv
     public abstract Float getWeight();
     public abstract boolean isLeaf();
+    abstract TreeNode copyForSnapshot(); // detached copy for CourseSnapshot, score columns shared copy-on-write
+
+    public ParentNode getParent(){return parent;}
+
+    public CourseJournal getJournal(){
+        // journal of the open course this node is part of, null if the course isn't journaled
+        return parent == null ? null : parent.getJournal();
+    }
+
+    public long getVersion(){return version;}
+
+    public Statistics getStatistics(){
+        // same instance for every view built on this node, it only recomputes after the node changed
+        if (statistics == null)
+            statistics = isLeaf() ? new Statistics((LeafNode)this) : new Statistics((ParentNode)this);
+        return statistics;
+    }
+
+    protected void bumpVersion(){
+        version++;
+        if (parent != null)
+            parent.bumpVersion();
+        else
+            courseChanged();
+    }
+
+    // something saved with the course changed at or below this node, the root tells its autosave
+    protected void courseChanged(){
+        if (parent != null)
+            parent.courseChanged();
+    }
+
+    // ====== dirty tracking, marks the path from this node up to the root ======
+    // one student's score changed somewhere below this node
+    protected void markStudentDirty(int ordinal){
+        if (parent != null)
+            parent.markStudentDirty(ordinal);
+    }
+
+    // every student below this node needs to be re-aggregated (weight, total score, structure changed)
+    protected void markAllDirty(){
+        if (parent != null)
+            parent.markAllDirty();
+    }
+
+    // weights or score conversion below this node changed, compiled GradingPlans are stale
+    protected void invalidatePlan(){
+        if (parent != null)
+            parent.invalidatePlan();
+    }
 
     // Model.NoteInterface functions
     public boolean hasNote(){ return note.hasNote();}
     public String getContent(){return note.getContent();}
-    public void writeNote(String str){note.writeNote(str);}
+    public void writeNote(String str){
+        note.writeNote(str);
+        CourseJournal journal = getJournal();
+        if (journal != null)
+            journal.noteWritten(this, -1, str);
+        courseChanged();
+    }
 }
@@ -11,6 +11,7 @@ import javax.swing.JPanel;
 import javax.swing.JScrollBar;
 import javax.swing.border.EmptyBorder;
 
+import Model.CourseWriter;
 import Model.ParentNode;
 
 import javax.swing.JLabel;
@@ -233,6 +234,7 @@ public class NewClass extends JFrame {
             if (finishflag!=0)
             {
 				root.updateCurrNode(Semester_Name, criteria_list, weights_list);
+				GradingSystem.controller.startAutosave(root, GradingSystem.currCourseFolder + Semester_Name + CourseWriter.EXTENSION);
 				root.traverse(0);
 				ArrayList<String> errors = root.treeValidation(null,  true);
 				if (errors.size()>0)
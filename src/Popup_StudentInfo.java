@@ -156,6 +156,10 @@ class Popup_Average {
     static JLabel L6;
     static JLabel L7;
     static JLabel L8;
+    static JLabel L9;
+    static JLabel L10;
+    static JLabel L11;
+    static JLabel L12;
     public Popup_Average(Statistics statistics) {
         HashMap<String, Float> statMap = statistics.computeStatistics();
         f = new JFrame("Average Statistics");
@@ -170,7 +174,11 @@ class Popup_Average {
         L6 = new JLabel(String.valueOf(statMap.get("min")));
         L7 = new JLabel(String.valueOf(statMap.get("max")));
         L8 = new JLabel(String.valueOf(statMap.get("stddev")));
-        JPanel p = new JPanel(new GridLayout(8,1));
+        L9 = new JLabel("Median");
+        L10 = new JLabel(String.valueOf(statMap.get("median")));
+        L11 = new JLabel("Quartiles (Q1 / Q3)");
+        L12 = new JLabel(statMap.get("q1") + " / " + statMap.get("q3"));
+        JPanel p = new JPanel(new GridLayout(13,1));
         b.setPreferredSize(new Dimension(25, 25));
         p.add(L1);
         p.add(L5);
@@ -180,6 +188,10 @@ class Popup_Average {
         p.add(L7);
         p.add(L4);
         p.add(L8);
+        p.add(L9);
+        p.add(L10);
+        p.add(L11);
+        p.add(L12);
         p.add(b);
         b.addActionListener(new ActionListener() {
             @Override
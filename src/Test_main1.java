@@ -30,27 +30,27 @@ public class Test_main1 {
         // manually setup some score
         ParentNode hws = (ParentNode)root.getChild(0);
         LeafNode hw1 = (LeafNode) hws.getChild(0).getChild(0);
-        hw1.getLeafByKey("u1").value = 10f;
-        hw1.getLeafByKey("u2").value = 20f;
-        hw1.getLeafByKey("u3").value = 30f;
-        hw1.getLeafByKey("u4").value = 40f;
+        hw1.getLeafByKey("u1").setScore(10f);
+        hw1.getLeafByKey("u2").setScore(20f);
+        hw1.getLeafByKey("u3").setScore(30f);
+        hw1.getLeafByKey("u4").setScore(40f);
         LeafNode hw2 = (LeafNode) hws.getChild(1).getChild(0);
-        hw2.getLeafByKey("u1").value = 15f;
-        hw2.getLeafByKey("u2").value = 25f;
-        hw2.getLeafByKey("u3").value = 35f;
-        hw2.getLeafByKey("u4").value = 45f;
+        hw2.getLeafByKey("u1").setScore(15f);
+        hw2.getLeafByKey("u2").setScore(25f);
+        hw2.getLeafByKey("u3").setScore(35f);
+        hw2.getLeafByKey("u4").setScore(45f);
 
         ParentNode midterm = (ParentNode)root.getChild(1);
         LeafNode paper = (LeafNode) midterm.getChild(0).getChild(0);
-        paper.getLeafByKey("u1").value = 40f;
-        paper.getLeafByKey("u2").value = 30f;
-        paper.getLeafByKey("u3").value = 20f;
-        paper.getLeafByKey("u4").value = 10f;
+        paper.getLeafByKey("u1").setScore(40f);
+        paper.getLeafByKey("u2").setScore(30f);
+        paper.getLeafByKey("u3").setScore(20f);
+        paper.getLeafByKey("u4").setScore(10f);
         LeafNode design = (LeafNode) midterm.getChild(1).getChild(0);
-        design.getLeafByKey("u1").value = 45f;
-        design.getLeafByKey("u2").value = 35f;
-        design.getLeafByKey("u3").value = 25f;
-        design.getLeafByKey("u4").value = 15f;
+        design.getLeafByKey("u1").setScore(45f);
+        design.getLeafByKey("u2").setScore(35f);
+        design.getLeafByKey("u3").setScore(25f);
+        design.getLeafByKey("u4").setScore(15f);
 
         // check score after setting
         System.out.println("===== tree after setting scores ======");
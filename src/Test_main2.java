@@ -69,6 +69,8 @@ public class Test_main2 {
         ((LeafNode)design.getChild(0)).setTotalScore(Float.NaN);
         hw2.setWeight(40f); // original 50
         ((LeafNode)(hw1.getChild(0))).getLeafByKey("u1").setScore(110f); // explosion percentage
+        LeafNode hw1Leaf = (LeafNode)hw1.getChild(0);
+        hw1Leaf.getLeafByKey("u2").setScore(hw1Leaf.getTotalScore()); // full marks, not an error
         System.out.println(" \n=====  error msg test (root only )=====");
         ArrayList<String> errors = root.treeValidation(null, true);
         for (String error : errors){
@@ -79,7 +81,7 @@ public class Test_main2 {
         System.out.println(" \n=====  error msg test (whole tree )=====");
         /*
         expected output order :
-        invalid score for [yuehying, lee] in hw1
+        invalid score for [yuehying, lee] in hw1      (u2's full marks in hw1 are no error)
         sub-category weight sum not equal to 100 in HW
         design total score not set
          */
@@ -87,6 +89,7 @@ public class Test_main2 {
         for (String error : errors){
             System.out.println(error);
         }
+        System.out.println("errors: " + errors.size() + " (expect 3)");
 
     }
 
@@ -1,11 +1,9 @@
 import Model.CellInputType;
+import Model.CourseWriter;
 import Model.LeafNode;
 import Model.ParentNode;
 import Model.StudentPool;
 
-import java.io.FileOutputStream;
-import java.io.ObjectOutputStream;
-
 public class Test_main3 {
     // used to generate past course and course in progress
     public static final String relativePastFolder = "./Past_Courses/";
@@ -49,35 +47,32 @@ public class Test_main3 {
         root.addChild(mid);
         root.connectStudentPool(studentPool);
 
-        hw1leaf.getLeafByKey("u1").value = 10f;
-        hw1leaf.getLeafByKey("u2").value = 20f;
-        hw1leaf.getLeafByKey("u3").value = 30f;
-        hw1leaf.getLeafByKey("u4").value = 40f;
+        hw1leaf.getLeafByKey("u1").setScore(10f);
+        hw1leaf.getLeafByKey("u2").setScore(20f);
+        hw1leaf.getLeafByKey("u3").setScore(30f);
+        hw1leaf.getLeafByKey("u4").setScore(40f);
 
-        hw2leaf.getLeafByKey("u1").value = 15f;
-        hw2leaf.getLeafByKey("u2").value = 25f;
-        hw2leaf.getLeafByKey("u3").value = 35f;
-        hw2leaf.getLeafByKey("u4").value = 45f;
+        hw2leaf.getLeafByKey("u1").setScore(15f);
+        hw2leaf.getLeafByKey("u2").setScore(25f);
+        hw2leaf.getLeafByKey("u3").setScore(35f);
+        hw2leaf.getLeafByKey("u4").setScore(45f);
 
-        paperleaf.getLeafByKey("u1").value = 40f;
-        paperleaf.getLeafByKey("u2").value = 30f;
-        paperleaf.getLeafByKey("u3").value = 20f;
-        paperleaf.getLeafByKey("u4").value = 10f;
+        paperleaf.getLeafByKey("u1").setScore(40f);
+        paperleaf.getLeafByKey("u2").setScore(30f);
+        paperleaf.getLeafByKey("u3").setScore(20f);
+        paperleaf.getLeafByKey("u4").setScore(10f);
 
-        designleaf.getLeafByKey("u1").value = 45f;
-        designleaf.getLeafByKey("u2").value = 35f;
-        designleaf.getLeafByKey("u3").value = 25f;
-        designleaf.getLeafByKey("u4").value = 15f;
+        designleaf.getLeafByKey("u1").setScore(45f);
+        designleaf.getLeafByKey("u2").setScore(35f);
+        designleaf.getLeafByKey("u3").setScore(25f);
+        designleaf.getLeafByKey("u4").setScore(15f);
 
         System.out.println("===Traversing Class1===");
         root.traverse(0);
 
-        String fileName = relativePastFolder + root.getCriteria() + ".ser";
+        String fileName = relativePastFolder + root.getCriteria() + CourseWriter.EXTENSION;
         try {
-            FileOutputStream fs = new FileOutputStream(fileName);
-            ObjectOutputStream objs = new ObjectOutputStream(fs);
-            objs.writeObject(root);
-            objs.close();
+            CourseWriter.write(root, fileName);
             System.out.println("write successfully");
         } catch (Exception e){
             e.printStackTrace();
@@ -128,20 +123,17 @@ public class Test_main3 {
 
         root.connectStudentPool(studentPool);
 
-        hw1leaf.getLeafByKey("u111").value = 11f;
-        hw1leaf.getLeafByKey("u222").value = 22f;
-        hw1leaf.getLeafByKey("u333").value = 33f;
-        hw1leaf.getLeafByKey("u444").value = 44f;
+        hw1leaf.getLeafByKey("u111").setScore(11f);
+        hw1leaf.getLeafByKey("u222").setScore(22f);
+        hw1leaf.getLeafByKey("u333").setScore(33f);
+        hw1leaf.getLeafByKey("u444").setScore(44f);
 
         System.out.println("===Traversing Class2===");
         root.traverse(0);
 
-        fileName = relativeCurrFolder + root.getCriteria() + ".ser";
+        fileName = relativeCurrFolder + root.getCriteria() + CourseWriter.EXTENSION;
         try {
-            FileOutputStream fs = new FileOutputStream(fileName);
-            ObjectOutputStream objs = new ObjectOutputStream(fs);
-            objs.writeObject(root);
-            objs.close();
+            CourseWriter.write(root, fileName);
             System.out.println("write successfully");
         } catch (Exception e){
             e.printStackTrace();
@@ -0,0 +1,139 @@
+import Model.CellInputType;
+import Model.GradeCsvImporter;
+import Model.GradeImportReport;
+import Model.LeafNode;
+import Model.ParentNode;
+import Model.StudentPool;
+
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Test_main4 {
+    /*
+    test GradeCsvImporter on ragged rows: a row shorter than the header leaves the missing scores as they are,
+    and on the sample testValues_assignmentGrades.csv (summary rows between header and students)
+    (don't forget to run Test_main and Test_main1 first to gen test_course_with_score.ser)
+     */
+    public static void main(String[] args){
+        String inputfileName = "./test_course_with_score.ser";
+        ParentNode root = null;
+        try {
+            FileInputStream fis = new FileInputStream(inputfileName);
+            ObjectInputStream objis = new ObjectInputStream(fis);
+            root = (ParentNode) objis.readObject();
+            System.out.println("read successfully");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        // full row, then rows with fewer fields than the header
+        Path csv = null;
+        GradeImportReport report = null;
+        try {
+            csv = Files.createTempFile("test_grades_ragged", ".csv");
+            try (FileWriter out = new FileWriter(csv.toFile())) {
+                out.write("Student ID,hw1,hw2\n");
+                out.write("u1,11,16\n");
+                out.write("u2,21\n");
+                out.write("u3\n");
+            }
+            report = new GradeCsvImporter(root).importFrom(csv.toString());
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                if (csv != null)
+                    Files.deleteIfExists(csv);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        System.out.println(report);
+
+        ParentNode hws = (ParentNode)root.getChild(0);
+        LeafNode hw1 = (LeafNode) hws.getChild(0).getChild(0);
+        LeafNode hw2 = (LeafNode) hws.getChild(1).getChild(0);
+        System.out.println("rejects (expect none): " + report.getRejects().size());
+        System.out.println("u1 hw1=" + hw1.getLeafByKey("u1").getValue() + " hw2=" + hw2.getLeafByKey("u1").getValue() + " (expect 11.0, 16.0)");
+        System.out.println("u2 hw1=" + hw1.getLeafByKey("u2").getValue() + " hw2=" + hw2.getLeafByKey("u2").getValue() + " (expect 21.0, 25.0)");
+        System.out.println("u3 hw1=" + hw1.getLeafByKey("u3").getValue() + " hw2=" + hw2.getLeafByKey("u3").getValue() + " (expect 30.0, 35.0)");
+
+        // the sample has Grading Option / Total / Average rows above the students, keyed by first name
+        ParentNode sample = buildSampleCourse();
+        if (sample == null)
+            return;
+        GradeImportReport sampleReport = importSample(sample);
+        System.out.println(sampleReport);
+        ParentNode sampleHws = (ParentNode)sample.getChild(0);
+        LeafNode sampleHw1 = (LeafNode)sampleHws.getChild(0).getChild(0);
+        LeafNode sampleHw4 = (LeafNode)sampleHws.getChild(3).getChild(0);
+        System.out.println("rows=" + sampleReport.getNumRow() + " accepted=" + sampleReport.getNumAccepted() + " rejected=" + sampleReport.getRejects().size() + " (expect 26, 92, 12: HW4 scores over 50)");
+        System.out.println("Alice HW1=" + sampleHw1.getLeafByKey("Alice").getValue() + " HW4=" + sampleHw4.getLeafByKey("Alice").getValue() + " (expect 52.0, 39.0)");
+
+        // a total that differs from the course drops the column
+        sample = buildSampleCourse();
+        ((LeafNode)sample.getChild(0).getChild(0).getChild(0)).setTotalScore(50);
+        sampleReport = importSample(sample);
+        System.out.println("first reject: " + sampleReport.getRejects().get(0) + " (expect row 0 [Total] HW1=100: total score is 50.0 in the course)");
+        System.out.println("Alice HW1=" + ((LeafNode)sample.getChild(0).getChild(0).getChild(0)).getLeafByKey("Alice").getValue() + " (expect NaN)");
+    }
+
+    private static GradeImportReport importSample(ParentNode root){
+        try {
+            return new GradeCsvImporter(root).importFrom("./testValues_assignmentGrades.csv");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static ParentNode buildSampleCourse(){
+        // HW1..HW4 set up like the sample's Grading Option and Total rows, students are its first column
+        Path roster = null;
+        try {
+            List<String> lines = Files.readAllLines(Path.of("./testValues_assignmentGrades.csv"));
+            ArrayList<String> names = new ArrayList<>();
+            names.add("Student");
+            for (String line : lines.subList(4, lines.size()))
+                names.add(line.substring(0, line.indexOf(',')));
+            roster = Files.createTempFile("test_roster", ".csv");
+            Files.write(roster, names);
+
+            Controller controller = new Controller();
+            ParentNode root = controller.getRoot();
+            root.updateCurrNode("2026F-CS101", new ArrayList<>(Arrays.asList("HWs")), new ArrayList<>(Arrays.asList("100")));
+            StudentPool studentPool = new StudentPool("student");
+            studentPool.importFromCsv(roster.toString());
+            root.connectStudentPool(studentPool);
+            ParentNode hws = (ParentNode)root.getChild(0);
+            controller.setCurrentState(hws);
+            String[] criteria = {"HW1", "HW2", "HW3", "HW4"};
+            CellInputType[] types = {CellInputType.Raw, CellInputType.Percentage, CellInputType.Deduction, CellInputType.Raw};
+            float[] totals = {100, 100, 180, 50};
+            for (int i=0; i<criteria.length; i++){
+                controller.createChild(criteria[i]);
+                ParentNode hw = (ParentNode)hws.getChild(i);
+                hw.setWeight(25);
+                ((LeafNode)hw.getChild(0)).setInputType(types[i]);
+                ((LeafNode)hw.getChild(0)).setTotalScore(totals[i]);
+            }
+            return root;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            try {
+                if (roster != null)
+                    Files.deleteIfExists(roster);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import Model.CellInputType;
+import Model.LeafNode;
+import Model.ParallelScoreEvaluator;
+import Model.ParentNode;
+import Model.StudentPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class Test_main5 {
+    /*
+    test computeFinalScore on a category added after the roster import (Controller.createChild),
+    the new category isn't connected to the pool itself
+     */
+    public static void main(String[] args){
+        ParentNode root = buildCourse();
+        LeafNode finLeaf = (LeafNode)root.getChild(0).getChild(0).getChild(0);
+        System.out.println("u1 aggregate=" + root.getAggregateScore().get("u1") + " (expect 80.0)");
+        System.out.println("u2 aggregate=" + root.getAggregateScore().get("u2") + " (expect 50.0)");
+
+        // a later score change has to reach the root too
+        finLeaf.getLeafByKey("u1").setScore(90f);
+        System.out.println("u1 aggregate after edit=" + root.getAggregateScore().get("u1") + " (expect 90.0)");
+
+        // the parallel evaluator has to agree with the sequential one on the same tree
+        HashMap<String, Float> sequential = new HashMap<>(buildCourse().getAggregateScore());
+        ParentNode parallelRoot = buildCourse();
+        new ParallelScoreEvaluator().recomputeDirtyScores(parallelRoot);
+        HashMap<String, Float> parallel = parallelRoot.getAggregateScore();
+        System.out.println("parallel == sequential: " + parallel.equals(sequential) + " " + parallel + " (expect true, u1=80.0, u2=50.0)");
+
+        // a single score edit only re-sums that student (GradingPlan), the parallel evaluator sums the tree
+        ParentNode editedRoot = buildCourse();
+        editedRoot.computeFinalScore();
+        ((LeafNode)editedRoot.getChild(0).getChild(0).getChild(0)).getLeafByKey("u2").setScore(67f);
+        ParentNode parallelEdited = buildCourse();
+        new ParallelScoreEvaluator().recomputeDirtyScores(parallelEdited);
+        ((LeafNode)parallelEdited.getChild(0).getChild(0).getChild(0)).getLeafByKey("u2").setScore(67f);
+        new ParallelScoreEvaluator().recomputeDirtyScores(parallelEdited);
+        boolean same = editedRoot.getAggregateScore().equals(parallelEdited.getAggregateScore());
+        System.out.println("after edit parallel == sequential: " + same + " u2=" + editedRoot.getAggregateScore().get("u2") + " (expect true, u2=67.0)");
+
+        // a new total score has to reach the compiled plan
+        finLeaf.setTotalScore(200);
+        System.out.println("u1 aggregate after total 200=" + root.getAggregateScore().get("u1") + " (expect 45.0)");
+        finLeaf.getLeafByKey("u2").setScore(100f);
+        System.out.println("u2 aggregate after edit=" + root.getAggregateScore().get("u2") + " (expect 50.0)");
+    }
+
+    private static ParentNode buildCourse(){
+        Controller controller = new Controller();
+        ParentNode root = controller.getRoot();
+        root.updateCurrNode("2026F-CS101", new ArrayList<>(Arrays.asList("Exams")), new ArrayList<>(Arrays.asList("100")));
+
+        StudentPool studentPool = new StudentPool("student id");
+        studentPool.importFromCsv("./real_Field.csv");
+        root.connectStudentPool(studentPool);
+        root.computeFinalScore(); // aggregates exist before the column is added
+
+        // add a column after the import, like the "add assignment" popup
+        ParentNode exams = (ParentNode)root.getChild(0);
+        controller.setCurrentState(exams);
+        controller.createChild("final");
+        ParentNode fin = (ParentNode)exams.getChild(0);
+        fin.setWeight(100);
+        LeafNode finLeaf = (LeafNode)fin.getChild(0);
+        finLeaf.setTotalScore(100);
+        finLeaf.setInputType(CellInputType.Raw);
+        finLeaf.getLeafByKey("u1").setScore(80f);
+        finLeaf.getLeafByKey("u2").setScore(50f);
+        return root;
+    }
+}